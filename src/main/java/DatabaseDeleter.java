@@ -26,6 +26,8 @@ public class DatabaseDeleter {
 
         int batchSize = 50000; // Adjust batch size based on memory availability
 
+        deleteInBatches(conn, "ctr_forecast", "id", batchSize);
+        deleteInBatches(conn, "store_template_daily_stats", "id", batchSize);
         deleteInBatches(conn, "link_click", "id", batchSize);
         deleteInBatches(conn, "sent_text_message", "id", batchSize);
         deleteInBatches(conn, "text_message_template", "id", batchSize);
@@ -45,6 +45,10 @@ public class DatabaseSeeder {
             insertTextMessagesAndClicks(conn, faker, storeIds, storeTemplateMap);
             conn.commit(); // ✅ Ensure Stores are committed
 
+            // Rebuild the daily analytics rollup from the raw rows inserted above
+            rebuildDailyStats(conn);
+            conn.commit();
+
             System.out.println("✅ Database seeding completed successfully!");
         } catch (Exception e) {
             e.printStackTrace();
@@ -229,6 +233,26 @@ public class DatabaseSeeder {
     }
 
 
+    private static void rebuildDailyStats(Connection conn) throws SQLException {
+        String sql = "INSERT INTO store_template_daily_stats (store_id, template_id, activity_date, sends, clicks) " +
+                "SELECT store_id, template_id, activity_date, SUM(sends), SUM(clicks) FROM (" +
+                "  SELECT store_id, template_id, CAST(sent_at AS DATE) AS activity_date, COUNT(*) AS sends, 0 AS clicks " +
+                "  FROM sent_text_message WHERE store_id IS NOT NULL AND template_id IS NOT NULL " +
+                "  GROUP BY store_id, template_id, CAST(sent_at AS DATE) " +
+                "  UNION ALL " +
+                "  SELECT stm.store_id, stm.template_id, CAST(lc.clicked_at AS DATE), 0, COUNT(*) " +
+                "  FROM link_click lc JOIN sent_text_message stm ON lc.sent_text_message_id = stm.id " +
+                "  WHERE stm.store_id IS NOT NULL AND stm.template_id IS NOT NULL " +
+                "  GROUP BY stm.store_id, stm.template_id, CAST(lc.clicked_at AS DATE)" +
+                ") activity GROUP BY store_id, template_id, activity_date";
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM store_template_daily_stats");
+            int rows = stmt.executeUpdate(sql);
+            System.out.println("✔ Rebuilt " + rows + " daily stats rows.");
+        }
+    }
+
     private static int getOrgIdForStore(Connection conn, int storeId) throws SQLException {
         String sql = "SELECT org_id FROM store WHERE id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
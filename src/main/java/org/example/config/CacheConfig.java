@@ -0,0 +1,32 @@
+package org.example.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String STORE_ANALYTICS_CACHE = "storeAnalytics";
+
+    /**
+     * In-process cache for dashboard analytics, bounded by size and by time since write.
+     * Entries are also invalidated per store whenever new activity for that store is recorded.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${analytics.cache.maximum-size:1000}") long maximumSize,
+                                     @Value("${analytics.cache.ttl:5m}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(STORE_ANALYTICS_CACHE);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Bounded pool for running independent analytics queries concurrently.
+     * When the queue is full the calling thread runs the query itself, so a burst of
+     * dashboard traffic degrades to sequential execution instead of failing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor analyticsExecutor(@Value("${analytics.executor.pool-size:8}") int poolSize,
+                                                    @Value("${analytics.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("analytics-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bounded pool for CPU-bound forecast training, kept apart from the query pool so a
+     * large batch of forecasts cannot starve dashboard queries.
+     */
+    @Bean
+    public ForkJoinPool forecastPool(@Value("${analytics.forecast.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -1,11 +1,28 @@
 package org.example.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+    private final int asyncPoolSize;
+    private final int asyncQueueCapacity;
+    private final Duration asyncTimeout;
+
+    public WebConfig(@Value("${web.async.pool-size:8}") int asyncPoolSize,
+                     @Value("${web.async.queue-capacity:50}") int asyncQueueCapacity,
+                     @Value("${web.async.timeout:5m}") Duration asyncTimeout) {
+        this.asyncPoolSize = asyncPoolSize;
+        this.asyncQueueCapacity = asyncQueueCapacity;
+        this.asyncTimeout = asyncTimeout;
+    }
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -14,4 +31,30 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE")
                 .allowedHeaders("*");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Bounded pool for streamed responses such as the NDJSON batch forecasts, so each open
+     * stream takes a pooled thread instead of a new one. Streams beyond the queue are rejected.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Streamed responses run on mvcAsyncExecutor and are cut off after the timeout. The other
+     * executor beans stop Boot from creating its own task executor, so without this MVC would
+     * fall back to a new thread per stream.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+        configurer.setDefaultTimeout(asyncTimeout.toMillis());
+    }
+}
@@ -1,10 +1,22 @@
 package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.ActivitySeriesDTO;
+import org.example.dto.OrganizationAnalyticsDTO;
+import org.example.dto.OrganizationTimeToClickDTO;
+import org.example.dto.RecentAnalyticsDTO;
+import org.example.dto.StoreAnalyticsDTO;
+import org.example.dto.StoreTimeToClickDTO;
+import org.example.repository.OrganizationRepository;
+import org.example.service.AnalyticsQueryExecutor;
 import org.example.service.AnalyticsService;
+import org.example.service.StoreAnalyticsCache;
+import org.example.service.TimeGranularity;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @RestController
@@ -12,16 +24,80 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AnalyticsController {
     private final AnalyticsService analyticsService;
+    private final StoreAnalyticsCache storeAnalyticsCache;
+    private final OrganizationRepository organizationRepository;
+    private final AnalyticsQueryExecutor queryExecutor;
 
     @GetMapping("/store/{storeId}")
-    public ResponseEntity<Map<String, Object>> getStoreAnalytics(@PathVariable Integer storeId) {
+    public ResponseEntity<StoreAnalyticsDTO> getStoreAnalytics(@PathVariable Integer storeId) {
         return ResponseEntity.ok(analyticsService.getStoreAnalytics(storeId));
     }
 
     @GetMapping("/store/{storeId}/recent")
-    public ResponseEntity<Map<String, Object>> getRecentAnalytics(
+    public ResponseEntity<RecentAnalyticsDTO> getRecentAnalytics(
             @PathVariable Integer storeId,
             @RequestParam(defaultValue = "30") int days) {
         return ResponseEntity.ok(analyticsService.getRecentAnalytics(storeId, days));
     }
-} 
\ No newline at end of file
+
+    /**
+     * Dense sends/clicks series for a store.
+     * Defaults to daily buckets over the last 30 days.
+     */
+    @GetMapping("/store/{storeId}/series")
+    public ResponseEntity<ActivitySeriesDTO> getActivitySeries(
+            @PathVariable Integer storeId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+
+        try {
+            return ResponseEntity.ok(analyticsService.getActivitySeries(
+                    storeId, TimeGranularity.fromString(granularity), start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/organization/{organizationId}")
+    public ResponseEntity<OrganizationAnalyticsDTO> getOrganizationAnalytics(@PathVariable Integer organizationId) {
+        if (!organizationRepository.existsById(organizationId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(analyticsService.getOrganizationAnalytics(organizationId));
+    }
+
+    /**
+     * Time from send to click for a store, overall and per template, with p50/p90/p99 in seconds
+     */
+    @GetMapping("/store/{storeId}/time-to-click")
+    public ResponseEntity<StoreTimeToClickDTO> getStoreTimeToClick(@PathVariable Integer storeId) {
+        return ResponseEntity.ok(analyticsService.getStoreTimeToClick(storeId));
+    }
+
+    /**
+     * Time from send to click across an organization's stores, overall and per store
+     */
+    @GetMapping("/organization/{organizationId}/time-to-click")
+    public ResponseEntity<OrganizationTimeToClickDTO> getOrganizationTimeToClick(@PathVariable Integer organizationId) {
+        if (!organizationRepository.existsById(organizationId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(analyticsService.getOrganizationTimeToClick(organizationId));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(storeAnalyticsCache.getStats());
+    }
+
+    /**
+     * Call counts and latencies of the individual analytics queries
+     */
+    @GetMapping("/timings")
+    public ResponseEntity<Map<String, Map<String, Object>>> getQueryTimings() {
+        return ResponseEntity.ok(queryExecutor.getTimings());
+    }
+}
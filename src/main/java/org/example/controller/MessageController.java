@@ -0,0 +1,45 @@
+package org.example.controller;
+
+import org.example.dto.BulkSendRequestDTO;
+import org.example.dto.BulkSendResultDTO;
+import org.example.repository.StoreRepository;
+import org.example.service.BulkSendService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/messages")
+public class MessageController {
+    private final BulkSendService bulkSendService;
+    private final StoreRepository storeRepository;
+    private final int maxBulkSize;
+
+    public MessageController(BulkSendService bulkSendService,
+                             StoreRepository storeRepository,
+                             @Value("${messages.bulk.max-size:100000}") int maxBulkSize) {
+        this.bulkSendService = bulkSendService;
+        this.storeRepository = storeRepository;
+        this.maxBulkSize = maxBulkSize;
+    }
+
+    /**
+     * Records the messages of a campaign send in one request
+     * @param request The store, optional template and messages (at most messages.bulk.max-size)
+     * @return The assigned message IDs and tracking codes, in request order
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkSendResultDTO> recordBulkSend(@RequestBody BulkSendRequestDTO request) {
+        if (request.getStoreId() == null || request.getMessages() == null || request.getMessages().isEmpty()
+                || request.getMessages().size() > maxBulkSize || request.getMessages().contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!storeRepository.existsById(request.getStoreId())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(bulkSendService.recordSends(request));
+    }
+}
@@ -1,16 +1,30 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.example.dto.BacktestReportDTO;
+import org.example.dto.BacktestRequestDTO;
+import org.example.dto.BatchPredictionRequestDTO;
 import org.example.dto.CTRPredictionDTO;
+import org.example.dto.TemplateCTRPredictionDTO;
 import org.example.model.Store;
 import org.example.repository.StoreRepository;
 import org.example.service.AnalyticsService;
+import org.example.service.CTRForecastModelCache;
 import org.example.service.CTRPredictionService;
+import org.example.service.ForecastBacktester;
+import org.example.service.TemplateCTRPredictionService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/predictions")
@@ -18,25 +32,36 @@ import java.util.Optional;
 public class PredictionController {
 
     private final CTRPredictionService ctrPredictionService;
+    private final TemplateCTRPredictionService templateCTRPredictionService;
+    private final ForecastBacktester forecastBacktester;
     private final AnalyticsService analyticsService;
     private final StoreRepository storeRepository;
+    private final CTRForecastModelCache forecastModelCache;
+    private final ObjectMapper objectMapper;
 
     /**
      * Endpoint to get CTR predictions for a store for the next N days.
      *
      * @param storeId The ID of the store to predict for
      * @param days    The number of days to predict (defaults to 30 if not specified)
+     * @param engine  The forecasting engine to use, e.g. "weka" or "holt-winters" (defaults to the configured one)
+     * @param intervals Whether to include bootstrap prediction intervals (defaults to false)
      * @return A CTRPredictionDTO containing the predictions and related data
      */
     @GetMapping("/ctr/{storeId}")
     public ResponseEntity<CTRPredictionDTO> getCTRPrediction(
             @PathVariable Long storeId,
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) String engine,
+            @RequestParam(defaultValue = "false") boolean intervals) {
 
         // Validate input
         if (days < 1 || days > 365) {
             return ResponseEntity.badRequest().build();
         }
+        if (engine != null && !ctrPredictionService.getEngineNames().contains(engine)) {
+            return ResponseEntity.badRequest().build();
+        }
 
         // Get the store to include its name in the response
         Optional<Store> storeOpt = storeRepository.findById(storeId.intValue());
@@ -47,14 +72,10 @@ public class PredictionController {
         Store store = storeOpt.get();
 
         // Get current CTR for comparison
-        Map<String, Object> analytics = analyticsService.getStoreAnalytics(storeId);
-        double currentCTR = 0.0;
-        if (analytics.containsKey("clickThroughRate")) {
-            currentCTR = (double) analytics.get("clickThroughRate");
-        }
+        double currentCTR = analyticsService.getStoreAnalytics(storeId).getClickThroughRate();
 
         // Get predictions
-        Map<String, Double> predictions = ctrPredictionService.predictCTR(storeId, days);
+        Map<String, Double> predictions = ctrPredictionService.predictCTR(storeId, days, engine);
 
         // Create and populate the response DTO
         CTRPredictionDTO predictionDTO = new CTRPredictionDTO();
@@ -63,7 +84,115 @@ public class PredictionController {
         predictionDTO.setPredictions(predictions);
         predictionDTO.setCurrentCTR(currentCTR);
         predictionDTO.updateCalculatedFields();
+        if (intervals) {
+            ctrPredictionService.addIntervals(predictionDTO, days);
+        }
 
         return ResponseEntity.ok(predictionDTO);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Endpoint to get CTR predictions for each template of a store for the next N days.
+     *
+     * @param storeId The ID of the store to predict for
+     * @param days    The number of days to predict (defaults to 30 if not specified)
+     * @return One prediction per template, ordered by template ID
+     */
+    @GetMapping("/ctr/{storeId}/templates")
+    public ResponseEntity<List<TemplateCTRPredictionDTO>> getTemplateCTRPredictions(
+            @PathVariable Long storeId,
+            @RequestParam(defaultValue = "30") int days) {
+
+        if (days < 1 || days > 365) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!storeRepository.existsById(storeId.intValue())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(templateCTRPredictionService.predictTemplateCTR(storeId.intValue(), days));
+    }
+
+    /**
+     * Streams CTR predictions for many stores as newline-delimited JSON, one line per store,
+     * in the order the forecasts finish. The body names either an organization or a list of store IDs.
+     *
+     * @param request The stores to predict for and the number of days (defaults to 30)
+     * @return A stream of CTRPredictionDTO lines
+     */
+    @PostMapping(value = "/ctr/batch", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getBatchCTRPredictions(@RequestBody BatchPredictionRequestDTO request) {
+        int days = request.getDays() != null ? request.getDays() : 30;
+        if (days < 1 || days > 365) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Store> stores;
+        if (request.getOrganizationId() != null) {
+            stores = storeRepository.findByOrganizationId(request.getOrganizationId());
+        } else if (request.getStoreIds() != null && !request.getStoreIds().isEmpty()) {
+            stores = storeRepository.findAllById(request.getStoreIds());
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> ctrPredictionService.predictBatch(stores, days, prediction -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(prediction));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Backtests the forecasting models with rolling origins over the history of an organization's
+     * stores or a list of stores, reporting accuracy and cost per model.
+     *
+     * @param request The stores, models and backtest settings
+     * @return Error and timing per model
+     */
+    @PostMapping("/backtest")
+    public ResponseEntity<BacktestReportDTO> backtest(@RequestBody BacktestRequestDTO request) {
+        int horizon = request.getHorizon() != null ? request.getHorizon() : 7;
+        int step = request.getStep() != null ? request.getStep() : 7;
+        int minTrainingDays = request.getMinTrainingDays() != null ? request.getMinTrainingDays() : 28;
+        if (horizon < 1 || horizon > 365 || step < 1 || minTrainingDays < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.getModels() != null && !forecastBacktester.getModelNames().containsAll(request.getModels())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Integer> storeIds;
+        if (request.getOrganizationId() != null) {
+            storeIds = storeRepository.findByOrganizationId(request.getOrganizationId()).stream()
+                    .map(Store::getId)
+                    .collect(Collectors.toList());
+        } else if (request.getStoreIds() != null && !request.getStoreIds().isEmpty()) {
+            storeIds = request.getStoreIds();
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(forecastBacktester.backtest(storeIds, request.getModels(), horizon, step, minTrainingDays));
+        } catch (IllegalArgumentException e) {
+            // Too many stores, origins and models for one request
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Size and hit rate of the trained model cache
+     */
+    @GetMapping("/models/stats")
+    public ResponseEntity<Map<String, Object>> getModelStats() {
+        return ResponseEntity.ok(forecastModelCache.getStats());
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.service.ClickFilter;
+import org.example.service.ClickTrackingService;
+import org.example.service.LinkClickWriter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class TrackingController {
+    private final ClickTrackingService clickTrackingService;
+    private final LinkClickWriter linkClickWriter;
+    private final ClickFilter clickFilter;
+
+    /**
+     * Redirects a tracking link to its destination. The click is written in the background;
+     * the redirect is not cacheable so that every click reaches this endpoint.
+     * The client is identified by the request's remote address; behind a proxy the container
+     * takes it from the forwarded headers of trusted proxies (server.forward-headers-strategy).
+     */
+    @GetMapping("/t/{code}")
+    public ResponseEntity<Void> redirect(@PathVariable String code,
+                                         @RequestHeader(value = "User-Agent", required = false) String userAgent,
+                                         HttpServletRequest request) {
+        URI destination = clickTrackingService.click(code, userAgent, request.getRemoteAddr());
+        if (destination == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(destination)
+                .cacheControl(CacheControl.noStore())
+                .build();
+    }
+
+    /**
+     * Queue length and write counts of the click writer, and counts of filtered clicks
+     */
+    @GetMapping("/api/tracking/stats")
+    public ResponseEntity<Map<String, Object>> getClickStats() {
+        Map<String, Object> stats = new HashMap<>(linkClickWriter.getStats());
+        stats.put("filter", clickFilter.getStats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dense, zero-filled activity series. Index i of every array describes the bucket
+ * starting at buckets[i]; buckets without activity have zero sends and clicks.
+ */
+@Data
+@JsonSerialize(using = ActivitySeriesSerializer.class)
+public class ActivitySeriesDTO {
+    private Integer storeId;
+    private String granularity;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private LocalDateTime[] buckets;
+    private long[] sends;
+    private long[] clicks;
+    private double[] clickThroughRate;
+}
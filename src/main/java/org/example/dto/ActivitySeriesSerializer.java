@@ -0,0 +1,69 @@
+package org.example.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes {@link ActivitySeriesDTO} straight to the generator. Timestamps use the same
+ * ISO-8601 form as the JavaTimeModule configured in JacksonConfig.
+ */
+public class ActivitySeriesSerializer extends StdSerializer<ActivitySeriesDTO> {
+
+    public ActivitySeriesSerializer() {
+        super(ActivitySeriesDTO.class);
+    }
+
+    @Override
+    public void serialize(ActivitySeriesDTO series, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        if (series.getStoreId() != null) {
+            gen.writeNumberField("storeId", series.getStoreId());
+        } else {
+            gen.writeNullField("storeId");
+        }
+        gen.writeStringField("granularity", series.getGranularity());
+        writeTime(gen, "from", series.getFrom());
+        writeTime(gen, "to", series.getTo());
+
+        gen.writeArrayFieldStart("buckets");
+        LocalDateTime[] buckets = series.getBuckets();
+        for (int i = 0; buckets != null && i < buckets.length; i++) {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(buckets[i]));
+        }
+        gen.writeEndArray();
+
+        writeLongs(gen, "sends", series.getSends());
+        writeLongs(gen, "clicks", series.getClicks());
+
+        gen.writeArrayFieldStart("clickThroughRate");
+        double[] ctr = series.getClickThroughRate();
+        for (int i = 0; ctr != null && i < ctr.length; i++) {
+            gen.writeNumber(ctr[i]);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeTime(JsonGenerator gen, String name, LocalDateTime time) throws IOException {
+        if (time != null) {
+            gen.writeStringField(name, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time));
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    private static void writeLongs(JsonGenerator gen, String name, long[] values) throws IOException {
+        gen.writeFieldName(name);
+        if (values != null) {
+            gen.writeArray(values, 0, values.length);
+        } else {
+            gen.writeStartArray();
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestReportDTO {
+    private int stores;
+    private int horizon;
+    private int step;
+    private int minTrainingDays;
+    private List<ModelBacktestDTO> models;
+}
@@ -0,0 +1,31 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Stores and settings of a rolling-origin backtest. The stores are every store of an
+ * organization or an explicit list of store IDs; unset settings use the defaults.
+ */
+@Data
+public class BacktestRequestDTO {
+    private Integer organizationId;
+    private List<Integer> storeIds;
+    /**
+     * Days forecast from each origin (defaults to 7)
+     */
+    private Integer horizon;
+    /**
+     * Days between origins (defaults to 7)
+     */
+    private Integer step;
+    /**
+     * Days of history before the first origin (defaults to 28)
+     */
+    private Integer minTrainingDays;
+    /**
+     * Models to compare (defaults to all)
+     */
+    private List<String> models;
+}
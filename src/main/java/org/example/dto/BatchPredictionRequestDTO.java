@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Stores to forecast in one batch: every store of an organization, or an explicit list of store IDs
+ */
+@Data
+public class BatchPredictionRequestDTO {
+    private Integer organizationId;
+    private List<Integer> storeIds;
+    private Integer days;
+}
@@ -0,0 +1,20 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One message of a bulk send; sentAt defaults to the time of the request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkMessageDTO {
+    private Integer clientId;
+    private String messageContent;
+    private String trackingLink;
+    private LocalDateTime sentAt;
+}
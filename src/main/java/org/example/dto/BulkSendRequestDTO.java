@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Messages of one campaign sent from a store, optionally built from one template
+ */
+@Data
+public class BulkSendRequestDTO {
+    private Integer storeId;
+    private Integer templateId;
+    private List<BulkMessageDTO> messages;
+}
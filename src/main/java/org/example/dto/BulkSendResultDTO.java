@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * IDs and tracking codes assigned to a bulk send, in the order the messages were given
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSendResultDTO {
+    private List<Integer> ids;
+    private List<String> trackingCodes;
+}
@@ -16,6 +16,9 @@ public class CTRPredictionDTO {
     private double currentCTR;
     private double averagePredictedCTR;
     private double predictedCTRChange;
+    private Double confidenceLevel;
+    private Map<String, Double> lowerBounds;
+    private Map<String, Double> upperBounds;
     
     /**
      * Calculates the average predicted CTR from the predictions map.
@@ -0,0 +1,40 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Accuracy and cost of one model over all origins of a backtest
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModelBacktestDTO {
+    private String model;
+    /**
+     * Origins the model was trained at
+     */
+    private long forecasts;
+    /**
+     * Origins where training failed
+     */
+    private long failures;
+    /**
+     * Forecast days compared with an observed CTR
+     */
+    private long points;
+    private double meanAbsoluteError;
+    /**
+     * Mean absolute percentage error over days with a non-zero CTR, or null when there were none
+     */
+    private Double meanAbsolutePercentageError;
+    /**
+     * Mean time to train a model and forecast the full horizon, as done once per store in production
+     */
+    private double trainingMillis;
+    /**
+     * Mean time to turn a trained model into the predictions of a request
+     */
+    private double inferenceMicros;
+}
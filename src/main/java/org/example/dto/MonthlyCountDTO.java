@@ -0,0 +1,14 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyCountDTO {
+    private int month;
+    private int year;
+    private long count;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class OrganizationAnalyticsDTO {
+    private Integer organizationId;
+    private long totalMessages;
+    private long totalClicks;
+    private double clickThroughRate;
+    private List<StoreActivitySummaryDTO> stores = new ArrayList<>();
+    private List<MonthlyCountDTO> messagesByMonth = new ArrayList<>();
+    private List<MonthlyCountDTO> clicksByMonth = new ArrayList<>();
+}
@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+public class OrganizationTimeToClickDTO {
+    private Integer organizationId;
+    private TimeToClickDTO overall;
+    private Map<Integer, TimeToClickDTO> byStore = new HashMap<>();
+}
@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecentAnalyticsDTO {
+    private String period;
+    private long recentMessages;
+    private long recentClicks;
+    private double clickThroughRate;
+}
@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreActivitySummaryDTO {
+    private Integer storeId;
+    private String storeName;
+    private long totalMessages;
+    private long totalClicks;
+    private double clickThroughRate;
+}
@@ -0,0 +1,28 @@
+package org.example.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Data;
+
+/**
+ * Store analytics held in primitive arrays. Index i of the month arrays describes one month
+ * and index i of the template arrays describes one template. The JSON keeps the shape the
+ * dashboard reads: month lists of {month, year, count} and maps keyed by template ID,
+ * each leaving out entries whose count is zero.
+ */
+@Data
+@JsonSerialize(using = StoreAnalyticsSerializer.class)
+public class StoreAnalyticsDTO {
+    private long totalMessages;
+    private long totalClicks;
+    private double clickThroughRate;
+
+    private int[] years = new int[0];
+    private int[] months = new int[0];
+    private long[] messagesByMonth = new long[0];
+    private long[] clicksByMonth = new long[0];
+
+    private int[] templateIds = new int[0];
+    private long[] messagesByTemplate = new long[0];
+    private long[] clicksByTemplate = new long[0];
+    private double[] ctrByTemplate = new double[0];
+}
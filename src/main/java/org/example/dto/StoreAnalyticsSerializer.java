@@ -0,0 +1,72 @@
+package org.example.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link StoreAnalyticsDTO} straight to the generator, without building
+ * intermediate maps or going through bean introspection.
+ */
+public class StoreAnalyticsSerializer extends StdSerializer<StoreAnalyticsDTO> {
+
+    public StoreAnalyticsSerializer() {
+        super(StoreAnalyticsDTO.class);
+    }
+
+    @Override
+    public void serialize(StoreAnalyticsDTO analytics, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("totalMessages", analytics.getTotalMessages());
+        gen.writeNumberField("totalClicks", analytics.getTotalClicks());
+        gen.writeNumberField("clickThroughRate", analytics.getClickThroughRate());
+        writeMonths(gen, "messagesByMonth", analytics, analytics.getMessagesByMonth());
+        writeMonths(gen, "clicksByMonth", analytics, analytics.getClicksByMonth());
+        writeTemplateCounts(gen, "messagesByTemplate", analytics.getTemplateIds(), analytics.getMessagesByTemplate());
+        writeTemplateCounts(gen, "clicksByTemplate", analytics.getTemplateIds(), analytics.getClicksByTemplate());
+
+        // CTR is reported for every template that has sends
+        int[] templateIds = analytics.getTemplateIds();
+        long[] sends = analytics.getMessagesByTemplate();
+        double[] ctr = analytics.getCtrByTemplate();
+        gen.writeObjectFieldStart("ctrByTemplate");
+        for (int i = 0; i < templateIds.length; i++) {
+            if (sends[i] > 0) {
+                gen.writeFieldName(Integer.toString(templateIds[i]));
+                gen.writeNumber(ctr[i]);
+            }
+        }
+        gen.writeEndObject();
+
+        gen.writeEndObject();
+    }
+
+    private static void writeMonths(JsonGenerator gen, String name, StoreAnalyticsDTO analytics, long[] counts) throws IOException {
+        int[] years = analytics.getYears();
+        int[] months = analytics.getMonths();
+        gen.writeArrayFieldStart(name);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                gen.writeStartObject();
+                gen.writeNumberField("month", months[i]);
+                gen.writeNumberField("year", years[i]);
+                gen.writeNumberField("count", counts[i]);
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeTemplateCounts(JsonGenerator gen, String name, int[] templateIds, long[] counts) throws IOException {
+        gen.writeObjectFieldStart(name);
+        for (int i = 0; i < templateIds.length; i++) {
+            if (counts[i] > 0) {
+                gen.writeFieldName(Integer.toString(templateIds[i]));
+                gen.writeNumber(counts[i]);
+            }
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+public class StoreTimeToClickDTO {
+    private Integer storeId;
+    private TimeToClickDTO overall;
+    private Map<Integer, TimeToClickDTO> byTemplate = new HashMap<>();
+}
@@ -0,0 +1,28 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateCTRPredictionDTO {
+    private Integer templateId;
+    private String templateName;
+    private Map<String, Double> predictions;
+    private double currentCTR;
+    private double averagePredictedCTR;
+
+    /**
+     * Updates the average predicted CTR from the predictions map.
+     */
+    public void updateCalculatedFields() {
+        this.averagePredictedCTR = predictions == null ? 0.0 : predictions.values().stream()
+                .mapToDouble(Double::doubleValue)
+                .average()
+                .orElse(0.0);
+    }
+}
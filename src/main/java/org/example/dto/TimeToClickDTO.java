@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import lombok.Data;
+
+/**
+ * Distribution of the time between sending a message and a click on its link.
+ * Percentiles are bucket upper bounds in seconds; counts[i] is the number of clicks in
+ * the bucket ending at bucketUpperBoundSeconds[i]. Trailing empty buckets are left out.
+ */
+@Data
+public class TimeToClickDTO {
+    private long totalClicks;
+    private double p50Seconds;
+    private double p90Seconds;
+    private double p99Seconds;
+    private double[] bucketUpperBoundSeconds;
+    private long[] counts;
+}
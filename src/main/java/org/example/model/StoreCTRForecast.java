@@ -0,0 +1,52 @@
+package org.example.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Forecast CTR of a store for one day, written by the nightly forecast job.
+ * Only the latest run is kept; {@link #generatedAt} tells whether it is fresh enough to serve.
+ */
+@Entity
+@Table(name = "ctr_forecast")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class StoreCTRForecast {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "store_id", nullable = false)
+    private Integer storeId;
+
+    @Column(name = "generated_at", nullable = false)
+    private LocalDateTime generatedAt;
+
+    @Column(name = "forecast_date", nullable = false)
+    private LocalDate forecastDate;
+
+    @Column(name = "ctr", nullable = false)
+    private Double ctr;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StoreCTRForecast that = (StoreCTRForecast) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
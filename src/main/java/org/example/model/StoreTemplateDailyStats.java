@@ -0,0 +1,55 @@
+package org.example.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Daily rollup of messages sent and links clicked per store and template.
+ * Rows are maintained incrementally by {@link org.example.service.MessageActivityService}
+ * so analytics never have to scan the raw message and click tables.
+ */
+@Entity
+@Table(name = "store_template_daily_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class StoreTemplateDailyStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "store_id", nullable = false)
+    private Integer storeId;
+
+    @Column(name = "template_id", nullable = false)
+    private Integer templateId;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(name = "sends", nullable = false)
+    private Long sends = 0L;
+
+    @Column(name = "clicks", nullable = false)
+    private Long clicks = 0L;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StoreTemplateDailyStats that = (StoreTemplateDailyStats) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
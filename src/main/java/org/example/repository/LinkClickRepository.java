@@ -6,27 +6,43 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface LinkClickRepository extends JpaRepository<LinkClick, Integer> {
+    /**
+     * Time-to-click bucket of a click, matching LatencyHistogram.bucketOf:
+     * 0 below one second, then four buckets per doubling, capped at the last bucket.
+     */
+    String TIME_TO_CLICK_BUCKET =
+            "CASE WHEN EXTRACT(EPOCH FROM (lc.clicked_at - stm.sent_at)) < 1 THEN 0 " +
+            "ELSE LEAST(CAST(FLOOR(LN(EXTRACT(EPOCH FROM (lc.clicked_at - stm.sent_at))) / LN(2) * 4) AS INTEGER) + 1, 104) END";
+
     
     @Query("SELECT COUNT(lc) FROM LinkClick lc JOIN lc.sentTextMessage stm WHERE stm.store.id = :storeId")
     Long countClicksByStore(@Param("storeId") Integer storeId);
     
-    @Query("SELECT stm.template.id, COUNT(lc) FROM LinkClick lc JOIN lc.sentTextMessage stm " +
-           "WHERE stm.store.id = :storeId GROUP BY stm.template.id")
+    @Query(value = "SELECT template_id, CAST(SUM(clicks) AS BIGINT) as count " +
+                  "FROM store_template_daily_stats WHERE store_id = :storeId " +
+                  "GROUP BY template_id HAVING SUM(clicks) > 0", nativeQuery = true)
     List<Object[]> countClicksByTemplate(@Param("storeId") Integer storeId);
     
-    @Query(value = "SELECT EXTRACT(MONTH FROM lc.clicked_at) as month, " +
-                  "EXTRACT(YEAR FROM lc.clicked_at) as year, COUNT(*) as count " +
-                  "FROM link_click lc " +
-                  "JOIN sent_text_message stm ON lc.sent_text_message_id = stm.id " +
-                  "WHERE stm.store_id = :storeId " +
-                  "GROUP BY EXTRACT(YEAR FROM lc.clicked_at), EXTRACT(MONTH FROM lc.clicked_at) " +
+    @Query(value = "SELECT EXTRACT(MONTH FROM activity_date) as month, " +
+                  "EXTRACT(YEAR FROM activity_date) as year, CAST(SUM(clicks) AS BIGINT) as count " +
+                  "FROM store_template_daily_stats WHERE store_id = :storeId " +
+                  "GROUP BY EXTRACT(YEAR FROM activity_date), EXTRACT(MONTH FROM activity_date) " +
+                  "HAVING SUM(clicks) > 0 " +
                   "ORDER BY year, month", nativeQuery = true)
     List<Object[]> countClicksByMonth(@Param("storeId") Integer storeId);
     
+    @Query("SELECT COUNT(lc) FROM LinkClick lc JOIN lc.sentTextMessage stm " +
+           "WHERE stm.store.id = :storeId AND lc.clickedAt BETWEEN :startDate AND :endDate")
+    Long countClicksByStoreAndDateRange(
+            @Param("storeId") Integer storeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
     @Query("SELECT COUNT(lc) FROM LinkClick lc JOIN lc.sentTextMessage stm WHERE stm.id = :messageId")
     Long countClicksForMessage(@Param("messageId") Integer messageId);
     
@@ -35,4 +51,58 @@ public interface LinkClickRepository extends JpaRepository<LinkClick, Integer> {
     
     @Query("SELECT lc FROM LinkClick lc JOIN lc.sentTextMessage stm WHERE stm.store.id = :storeId")
     List<LinkClick> findByStoreId(@Param("storeId") Long storeId);
-} 
\ No newline at end of file
+    
+    /**
+     * Counts clicks per date_trunc bucket within [from, to).
+     * The range predicate on clicked_at lets the clicked_at index limit the scan.
+     * Clicks on messages without a template are left out, as they are from the daily rollup.
+     */
+    @Query(value = "SELECT date_trunc(:unit, lc.clicked_at) as bucket, COUNT(*) as count " +
+                  "FROM link_click lc " +
+                  "JOIN sent_text_message stm ON lc.sent_text_message_id = stm.id " +
+                  "WHERE stm.store_id = :storeId AND lc.clicked_at >= :from AND lc.clicked_at < :to " +
+                  "AND stm.template_id IS NOT NULL " +
+                  "GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> countClicksByBucket(
+            @Param("storeId") Integer storeId,
+            @Param("unit") String unit,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    /**
+     * Hourly click counts per store within [from, to), used to seed in-memory counters.
+     * Each row is {storeId, hour, count}.
+     */
+    @Query(value = "SELECT stm.store_id, date_trunc('hour', lc.clicked_at) as hour, COUNT(*) as count " +
+                  "FROM link_click lc " +
+                  "JOIN sent_text_message stm ON lc.sent_text_message_id = stm.id " +
+                  "WHERE lc.clicked_at >= :from AND lc.clicked_at < :to " +
+                  "GROUP BY 1, 2", nativeQuery = true)
+    List<Object[]> countClicksByStoreAndHour(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    /**
+     * Time-to-click histogram counts per store and template for clicks before a point in time,
+     * used to seed the in-memory histograms. Each row is {storeId, templateId, bucket, count}.
+     */
+    @Query(value = "SELECT stm.store_id, stm.template_id, " + TIME_TO_CLICK_BUCKET + " as bucket, COUNT(*) as count " +
+                  "FROM link_click lc " +
+                  "JOIN sent_text_message stm ON lc.sent_text_message_id = stm.id " +
+                  "WHERE lc.clicked_at < :before AND stm.sent_at IS NOT NULL " +
+                  "AND stm.store_id IS NOT NULL AND stm.template_id IS NOT NULL " +
+                  "GROUP BY 1, 2, 3", nativeQuery = true)
+    List<Object[]> countTimeToClickBuckets(@Param("before") LocalDateTime before);
+    
+    /**
+     * Time-to-click histogram counts per store and template for the given stores.
+     * Each row is {storeId, templateId, bucket, count}.
+     */
+    @Query(value = "SELECT stm.store_id, stm.template_id, " + TIME_TO_CLICK_BUCKET + " as bucket, COUNT(*) as count " +
+                  "FROM link_click lc " +
+                  "JOIN sent_text_message stm ON lc.sent_text_message_id = stm.id " +
+                  "WHERE stm.store_id IN (:storeIds) AND lc.clicked_at IS NOT NULL " +
+                  "AND stm.sent_at IS NOT NULL AND stm.template_id IS NOT NULL " +
+                  "GROUP BY 1, 2, 3", nativeQuery = true)
+    List<Object[]> countTimeToClickBucketsByStores(@Param("storeIds") List<Integer> storeIds);
+}
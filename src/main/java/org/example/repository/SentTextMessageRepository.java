@@ -26,12 +26,58 @@ public interface SentTextMessageRepository extends JpaRepository<SentTextMessage
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT s.template.id, COUNT(s) FROM SentTextMessage s WHERE s.store.id = :storeId GROUP BY s.template.id")
+    @Query(value = "SELECT template_id, CAST(SUM(sends) AS BIGINT) as count " +
+                 "FROM store_template_daily_stats WHERE store_id = :storeId " +
+                 "GROUP BY template_id HAVING SUM(sends) > 0", nativeQuery = true)
     List<Object[]> countMessagesByTemplate(@Param("storeId") Integer storeId);
     
-    @Query(value = "SELECT EXTRACT(MONTH FROM sent_at) as month, EXTRACT(YEAR FROM sent_at) as year, COUNT(*) as count " +
-                 "FROM sent_text_message WHERE store_id = :storeId " +
-                 "GROUP BY EXTRACT(YEAR FROM sent_at), EXTRACT(MONTH FROM sent_at) " +
+    @Query(value = "SELECT EXTRACT(MONTH FROM activity_date) as month, EXTRACT(YEAR FROM activity_date) as year, " +
+                 "CAST(SUM(sends) AS BIGINT) as count " +
+                 "FROM store_template_daily_stats WHERE store_id = :storeId " +
+                 "GROUP BY EXTRACT(YEAR FROM activity_date), EXTRACT(MONTH FROM activity_date) " +
+                 "HAVING SUM(sends) > 0 " +
                  "ORDER BY year, month", nativeQuery = true)
     List<Object[]> countMessagesByMonth(@Param("storeId") Integer storeId);
-} 
\ No newline at end of file
+    
+    /**
+     * Counts messages per date_trunc bucket within [from, to).
+     * The range predicate on sent_at lets the (store_id, sent_at) index limit the scan.
+     * Messages without a template are left out, as they are from the daily rollup.
+     */
+    @Query(value = "SELECT date_trunc(:unit, sent_at) as bucket, COUNT(*) as count " +
+                 "FROM sent_text_message " +
+                 "WHERE store_id = :storeId AND sent_at >= :from AND sent_at < :to AND template_id IS NOT NULL " +
+                 "GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> countMessagesByBucket(
+            @Param("storeId") Integer storeId,
+            @Param("unit") String unit,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    /**
+     * Hourly message counts per store within [from, to), used to seed in-memory counters.
+     * Each row is {storeId, hour, count}.
+     */
+    @Query(value = "SELECT store_id, date_trunc('hour', sent_at) as hour, COUNT(*) as count " +
+                 "FROM sent_text_message WHERE sent_at >= :from AND sent_at < :to " +
+                 "GROUP BY 1, 2", nativeQuery = true)
+    List<Object[]> countMessagesByStoreAndHour(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    /**
+     * Fields needed to redirect and record a click on a message's tracking link
+     * @return At most one row of message ID, store ID, template ID, sent at and tracking link
+     */
+    @Query(value = "SELECT id, store_id, template_id, sent_at, tracking_link " +
+                 "FROM sent_text_message WHERE id = :id", nativeQuery = true)
+    List<Object[]> findTrackingLink(@Param("id") Integer id);
+    
+    /**
+     * Takes IDs from the message sequence for rows inserted outside JPA, in one round trip
+     * @param count Number of IDs wanted
+     * @return The allocated IDs
+     */
+    @Query(value = "SELECT nextval('sent_text_message_id_seq') FROM generate_series(1, :count)", nativeQuery = true)
+    List<Number> allocateIds(@Param("count") int count);
+}
@@ -0,0 +1,32 @@
+package org.example.repository;
+
+import org.example.model.StoreCTRForecast;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StoreCTRForecastRepository extends JpaRepository<StoreCTRForecast, Long> {
+
+    /**
+     * Upcoming forecast days of a store from a run no older than the given time.
+     * Each row is {forecastDate, ctr}, ordered by date.
+     */
+    @Query(value = "SELECT forecast_date, ctr FROM ctr_forecast " +
+                  "WHERE store_id = :storeId AND forecast_date > :today AND generated_at >= :generatedSince " +
+                  "ORDER BY forecast_date LIMIT :days", nativeQuery = true)
+    List<Object[]> findUpcoming(@Param("storeId") Integer storeId,
+                                @Param("today") LocalDate today,
+                                @Param("generatedSince") LocalDateTime generatedSince,
+                                @Param("days") int days);
+
+    @Modifying
+    @Query("DELETE FROM StoreCTRForecast f WHERE f.storeId = :storeId")
+    int deleteByStoreId(@Param("storeId") Integer storeId);
+}
@@ -2,6 +2,7 @@ package org.example.repository;
 
 import org.example.model.Store;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +10,7 @@ import java.util.List;
 @Repository
 public interface StoreRepository extends JpaRepository<Store, Integer> {
     List<Store> findByOrganizationId(Integer organizationId);
+
+    @Query("SELECT s.id FROM Store s ORDER BY s.id")
+    List<Integer> findAllIds();
 } 
\ No newline at end of file
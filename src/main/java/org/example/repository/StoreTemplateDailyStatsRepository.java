@@ -0,0 +1,118 @@
+package org.example.repository;
+
+import org.example.model.StoreTemplateDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StoreTemplateDailyStatsRepository extends JpaRepository<StoreTemplateDailyStats, Integer> {
+
+    @Modifying
+    @Query(value = "INSERT INTO store_template_daily_stats (store_id, template_id, activity_date, sends, clicks) " +
+                  "VALUES (:storeId, :templateId, :activityDate, :count, 0) " +
+                  "ON CONFLICT (store_id, template_id, activity_date) " +
+                  "DO UPDATE SET sends = store_template_daily_stats.sends + EXCLUDED.sends", nativeQuery = true)
+    int addSends(@Param("storeId") Integer storeId,
+                 @Param("templateId") Integer templateId,
+                 @Param("activityDate") LocalDate activityDate,
+                 @Param("count") long count);
+
+    @Modifying
+    @Query(value = "INSERT INTO store_template_daily_stats (store_id, template_id, activity_date, sends, clicks) " +
+                  "VALUES (:storeId, :templateId, :activityDate, 0, :count) " +
+                  "ON CONFLICT (store_id, template_id, activity_date) " +
+                  "DO UPDATE SET clicks = store_template_daily_stats.clicks + EXCLUDED.clicks", nativeQuery = true)
+    int addClicks(@Param("storeId") Integer storeId,
+                  @Param("templateId") Integer templateId,
+                  @Param("activityDate") LocalDate activityDate,
+                  @Param("count") long count);
+
+    /**
+     * Summarizes a store's activity in a single statement and a single scan of the rollup.
+     * Each row is {kind, year, month, templateId, sends, clicks} where kind is
+     * "total" (one row, year/month/templateId null), "month" (templateId null)
+     * or "template" (year/month null).
+     */
+    @Query(value = "SELECT CASE WHEN GROUPING(year, month) = 0 THEN 'month' " +
+                  "            WHEN GROUPING(template_id) = 0 THEN 'template' " +
+                  "            ELSE 'total' END as kind, " +
+                  "year, month, template_id, " +
+                  "CAST(COALESCE(SUM(sends), 0) AS BIGINT) as sends, " +
+                  "CAST(COALESCE(SUM(clicks), 0) AS BIGINT) as clicks " +
+                  "FROM (SELECT CAST(EXTRACT(YEAR FROM activity_date) AS INTEGER) as year, " +
+                  "             CAST(EXTRACT(MONTH FROM activity_date) AS INTEGER) as month, " +
+                  "             template_id, sends, clicks " +
+                  "      FROM store_template_daily_stats WHERE store_id = :storeId) activity " +
+                  "GROUP BY GROUPING SETS ((), (year, month), (template_id)) " +
+                  "ORDER BY kind, year, month, template_id", nativeQuery = true)
+    List<Object[]> summarizeStore(@Param("storeId") Integer storeId);
+
+    /**
+     * Daily totals for a store, grouped by the database.
+     * Each row is {activityDate, sends, clicks}, ordered by date.
+     */
+    @Query(value = "SELECT activity_date, CAST(SUM(sends) AS BIGINT) as sends, CAST(SUM(clicks) AS BIGINT) as clicks " +
+                  "FROM store_template_daily_stats WHERE store_id = :storeId " +
+                  "GROUP BY activity_date ORDER BY activity_date", nativeQuery = true)
+    List<Object[]> findDailyActivityByStore(@Param("storeId") Integer storeId);
+
+    /**
+     * Daily totals per template of a store in one statement.
+     * Each row is {templateId, activityDate, sends, clicks}, ordered by template and date.
+     */
+    @Query(value = "SELECT template_id, activity_date, CAST(SUM(sends) AS BIGINT) as sends, CAST(SUM(clicks) AS BIGINT) as clicks " +
+                  "FROM store_template_daily_stats WHERE store_id = :storeId " +
+                  "GROUP BY template_id, activity_date ORDER BY template_id, activity_date", nativeQuery = true)
+    List<Object[]> findDailyActivityByTemplate(@Param("storeId") Integer storeId);
+
+    /**
+     * Daily totals for several stores in one statement.
+     * Each row is {storeId, activityDate, sends, clicks}, ordered by store and date.
+     */
+    @Query(value = "SELECT store_id, activity_date, CAST(SUM(sends) AS BIGINT) as sends, CAST(SUM(clicks) AS BIGINT) as clicks " +
+                  "FROM store_template_daily_stats WHERE store_id IN (:storeIds) " +
+                  "GROUP BY store_id, activity_date ORDER BY store_id, activity_date", nativeQuery = true)
+    List<Object[]> findDailyActivityByStores(@Param("storeIds") Collection<Integer> storeIds);
+
+    /**
+     * Summarizes an organization's activity per store and per month in a single statement.
+     * Each row is {kind, storeId, storeName, year, month, sends, clicks} where kind is
+     * "store" (year/month null) or "month" (storeId/storeName null).
+     * Stores without any activity are still returned with zero counts.
+     */
+    @Query(value = "SELECT CASE WHEN GROUPING(store_id, store_name) = 0 THEN 'store' ELSE 'month' END as kind, " +
+                  "store_id, store_name, year, month, " +
+                  "CAST(COALESCE(SUM(sends), 0) AS BIGINT) as sends, " +
+                  "CAST(COALESCE(SUM(clicks), 0) AS BIGINT) as clicks " +
+                  "FROM (SELECT s.id as store_id, s.name as store_name, " +
+                  "             CAST(EXTRACT(YEAR FROM d.activity_date) AS INTEGER) as year, " +
+                  "             CAST(EXTRACT(MONTH FROM d.activity_date) AS INTEGER) as month, " +
+                  "             d.sends, d.clicks " +
+                  "      FROM store s " +
+                  "      LEFT JOIN store_template_daily_stats d ON d.store_id = s.id " +
+                  "      WHERE s.org_id = :organizationId) activity " +
+                  "GROUP BY GROUPING SETS ((store_id, store_name), (year, month)) " +
+                  "ORDER BY kind DESC, store_id, year, month", nativeQuery = true)
+    List<Object[]> summarizeOrganization(@Param("organizationId") Integer organizationId);
+
+    /**
+     * Sends and clicks per date_trunc bucket for days within [from, to).
+     * Each row is {bucketStart, sends, clicks}, ordered by bucket.
+     */
+    @Query(value = "SELECT date_trunc(:unit, CAST(activity_date AS TIMESTAMP)) as bucket, " +
+                  "CAST(SUM(sends) AS BIGINT) as sends, CAST(SUM(clicks) AS BIGINT) as clicks " +
+                  "FROM store_template_daily_stats " +
+                  "WHERE store_id = :storeId AND activity_date >= :from AND activity_date < :to " +
+                  "GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> countActivityByBucket(@Param("storeId") Integer storeId,
+                                         @Param("unit") String unit,
+                                         @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to);
+}
@@ -0,0 +1,114 @@
+package org.example.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs analytics queries and records how long each named query takes.
+ * Independent queries submitted together run concurrently on the analytics executor,
+ * so a request takes roughly as long as its slowest query rather than the sum of all of them.
+ * Setting analytics.query.parallel=false runs every query on the calling thread instead.
+ */
+@Component
+public class AnalyticsQueryExecutor {
+    private final Executor executor;
+    private final boolean parallel;
+    private final Map<String, QueryTiming> timings = new ConcurrentHashMap<>();
+
+    public AnalyticsQueryExecutor(@Qualifier("analyticsExecutor") Executor executor,
+                                  @Value("${analytics.query.parallel:true}") boolean parallel) {
+        this.executor = executor;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Starts a query that can run alongside others
+     * @param name Name the query's timing is recorded under
+     * @param query The query to run
+     * @return A future completed with the query result
+     */
+    public <T> CompletableFuture<T> submit(String name, Supplier<T> query) {
+        if (!parallel) {
+            try {
+                return CompletableFuture.completedFuture(run(name, query));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> run(name, query), executor);
+    }
+
+    /**
+     * Runs a query on the calling thread, recording its timing
+     * @param name Name the query's timing is recorded under
+     * @param query The query to run
+     * @return The query result
+     */
+    public <T> T run(String name, Supplier<T> query) {
+        long start = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            timings.computeIfAbsent(name, key -> new QueryTiming()).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Waits for a submitted query, rethrowing its failure unwrapped
+     * @param future A future returned by {@link #submit(String, Supplier)}
+     * @return The query result
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Per-query call counts and latencies in milliseconds
+     * @return Timings keyed by query name
+     */
+    public Map<String, Map<String, Object>> getTimings() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        timings.forEach((name, timing) -> result.put(name, timing.toMap()));
+        return result;
+    }
+
+    private static final class QueryTiming {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        Map<String, Object> toMap() {
+            long calls = count.sum();
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", calls);
+            map.put("averageMs", calls > 0 ? totalNanos.sum() / 1_000_000.0 / calls : 0.0);
+            map.put("maxMs", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
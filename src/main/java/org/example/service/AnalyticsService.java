@@ -1,117 +1,384 @@
 package org.example.service;
 
 import lombok.RequiredArgsConstructor;
+import org.example.config.CacheConfig;
+import org.example.dto.ActivitySeriesDTO;
+import org.example.dto.MonthlyCountDTO;
+import org.example.dto.OrganizationAnalyticsDTO;
+import org.example.dto.OrganizationTimeToClickDTO;
+import org.example.dto.RecentAnalyticsDTO;
+import org.example.dto.StoreActivitySummaryDTO;
+import org.example.dto.StoreAnalyticsDTO;
+import org.example.dto.StoreTimeToClickDTO;
+import org.example.dto.TimeToClickDTO;
+import org.example.model.Store;
 import org.example.repository.LinkClickRepository;
 import org.example.repository.SentTextMessageRepository;
+import org.example.repository.StoreRepository;
+import org.example.repository.StoreTemplateDailyStatsRepository;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
+    /**
+     * Upper bound on the number of buckets in one series request
+     */
+    public static final int MAX_SERIES_BUCKETS = 10_000;
+
     private final SentTextMessageRepository sentTextMessageRepository;
     private final LinkClickRepository linkClickRepository;
+    private final StoreTemplateDailyStatsRepository dailyStatsRepository;
+    private final RecentActivityCounters recentActivityCounters;
+    private final AnalyticsQueryExecutor queryExecutor;
+    private final TimeToClickHistograms timeToClickHistograms;
+    private final StoreRepository storeRepository;
 
     /**
      * Get analytics for a store using a Long ID
      * @param storeId The store ID as a Long
-     * @return Analytics data as a map
+     * @return Analytics data for the store
      */
-    public Map<String, Object> getStoreAnalytics(Long storeId) {
+    @Cacheable(cacheNames = CacheConfig.STORE_ANALYTICS_CACHE, key = "#storeId.intValue()")
+    public StoreAnalyticsDTO getStoreAnalytics(Long storeId) {
         return getStoreAnalytics(storeId.intValue());
     }
 
-    public Map<String, Object> getStoreAnalytics(Integer storeId) {
-        Map<String, Object> analytics = new HashMap<>();
+    @Cacheable(cacheNames = CacheConfig.STORE_ANALYTICS_CACHE, key = "#storeId")
+    public StoreAnalyticsDTO getStoreAnalytics(Integer storeId) {
+        // Totals, monthly and per-template counts all come back from one grouping-sets query
+        List<Object[]> summary = queryExecutor.run("storeSummary", () -> dailyStatsRepository.summarizeStore(storeId));
         
-        // Total messages sent
-        Long totalMessages = sentTextMessageRepository.countMessagesByStore(storeId);
+        int monthCount = 0;
+        int templateCount = 0;
+        for (Object[] row : summary) {
+            if ("month".equals(row[0])) {
+                monthCount++;
+            } else if ("template".equals(row[0])) {
+                templateCount++;
+            }
+        }
         
-        // Total clicks
-        Long totalClicks = linkClickRepository.countClicksByStore(storeId);
+        StoreAnalyticsDTO analytics = new StoreAnalyticsDTO();
+        int[] years = new int[monthCount];
+        int[] months = new int[monthCount];
+        long[] messagesByMonth = new long[monthCount];
+        long[] clicksByMonth = new long[monthCount];
+        int[] templateIds = new int[templateCount];
+        long[] messagesByTemplate = new long[templateCount];
+        long[] clicksByTemplate = new long[templateCount];
+        double[] ctrByTemplate = new double[templateCount];
+        
+        int month = 0;
+        int template = 0;
+        for (Object[] row : summary) {
+            String kind = (String) row[0];
+            long sends = ((Number) row[4]).longValue();
+            long clicks = ((Number) row[5]).longValue();
+            
+            switch (kind) {
+                case "total":
+                    analytics.setTotalMessages(sends);
+                    analytics.setTotalClicks(clicks);
+                    break;
+                case "month":
+                    years[month] = ((Number) row[1]).intValue();
+                    months[month] = ((Number) row[2]).intValue();
+                    messagesByMonth[month] = sends;
+                    clicksByMonth[month] = clicks;
+                    month++;
+                    break;
+                case "template":
+                    templateIds[template] = ((Number) row[3]).intValue();
+                    messagesByTemplate[template] = sends;
+                    clicksByTemplate[template] = clicks;
+                    ctrByTemplate[template] = sends > 0 ? (double) clicks / sends : 0;
+                    template++;
+                    break;
+                default:
+                    break;
+            }
+        }
         
         // Click-through rate
-        double ctr = totalMessages > 0 ? (double) totalClicks / totalMessages : 0;
-        
-        // Messages by month
-        List<Map<String, Object>> messagesByMonth = sentTextMessageRepository.countMessagesByMonth(storeId)
-                .stream()
-                .map(row -> {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("month", row[0]);
-                    item.put("year", row[1]);
-                    item.put("count", row[2]);
-                    return item;
-                })
-                .collect(Collectors.toList());
+        long totalMessages = analytics.getTotalMessages();
+        analytics.setClickThroughRate(totalMessages > 0 ? (double) analytics.getTotalClicks() / totalMessages : 0);
         
-        // Clicks by month
-        List<Map<String, Object>> clicksByMonth = linkClickRepository.countClicksByMonth(storeId)
-                .stream()
-                .map(row -> {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("month", row[0]);
-                    item.put("year", row[1]);
-                    item.put("count", row[2]);
-                    return item;
-                })
-                .collect(Collectors.toList());
+        analytics.setYears(years);
+        analytics.setMonths(months);
+        analytics.setMessagesByMonth(messagesByMonth);
+        analytics.setClicksByMonth(clicksByMonth);
+        analytics.setTemplateIds(templateIds);
+        analytics.setMessagesByTemplate(messagesByTemplate);
+        analytics.setClicksByTemplate(clicksByTemplate);
+        analytics.setCtrByTemplate(ctrByTemplate);
         
-        // Templates performance
-        Map<Integer, Long> messagesByTemplate = new HashMap<>();
-        sentTextMessageRepository.countMessagesByTemplate(storeId)
-                .forEach(row -> messagesByTemplate.put((Integer) row[0], (Long) row[1]));
-        
-        Map<Integer, Long> clicksByTemplate = new HashMap<>();
-        linkClickRepository.countClicksByTemplate(storeId)
-                .forEach(row -> clicksByTemplate.put((Integer) row[0], (Long) row[1]));
-        
-        // Calculate CTR by template
-        Map<Integer, Double> ctrByTemplate = new HashMap<>();
-        messagesByTemplate.forEach((templateId, messageCount) -> {
-            Long clickCount = clicksByTemplate.getOrDefault(templateId, 0L);
-            double templateCtr = messageCount > 0 ? (double) clickCount / messageCount : 0;
-            ctrByTemplate.put(templateId, templateCtr);
-        });
+        return analytics;
+    }
+    
+    /**
+     * Get analytics for every store of an organization.
+     * Per-store totals and the monthly series are computed by one set-based query
+     * grouped by store, so the cost does not grow with one round trip per store.
+     * @param organizationId The organization ID
+     * @return Organization totals, per-store CTR and the monthly series
+     */
+    public OrganizationAnalyticsDTO getOrganizationAnalytics(Integer organizationId) {
+        OrganizationAnalyticsDTO analytics = new OrganizationAnalyticsDTO();
+        analytics.setOrganizationId(organizationId);
         
-        analytics.put("totalMessages", totalMessages);
-        analytics.put("totalClicks", totalClicks);
-        analytics.put("clickThroughRate", ctr);
-        analytics.put("messagesByMonth", messagesByMonth);
-        analytics.put("clicksByMonth", clicksByMonth);
-        analytics.put("messagesByTemplate", messagesByTemplate);
-        analytics.put("clicksByTemplate", clicksByTemplate);
-        analytics.put("ctrByTemplate", ctrByTemplate);
+        long totalMessages = 0;
+        long totalClicks = 0;
+        
+        List<Object[]> summary = queryExecutor.run("organizationSummary",
+                () -> dailyStatsRepository.summarizeOrganization(organizationId));
+        for (Object[] row : summary) {
+            String kind = (String) row[0];
+            long sends = ((Number) row[5]).longValue();
+            long clicks = ((Number) row[6]).longValue();
+            
+            if ("store".equals(kind)) {
+                double storeCtr = sends > 0 ? (double) clicks / sends : 0;
+                analytics.getStores().add(new StoreActivitySummaryDTO(
+                        (Integer) row[1], (String) row[2], sends, clicks, storeCtr));
+                totalMessages += sends;
+                totalClicks += clicks;
+            } else if (row[3] != null) {
+                // Stores without activity produce a month group with no year or month
+                int year = ((Number) row[3]).intValue();
+                int month = ((Number) row[4]).intValue();
+                if (sends > 0) {
+                    analytics.getMessagesByMonth().add(new MonthlyCountDTO(month, year, sends));
+                }
+                if (clicks > 0) {
+                    analytics.getClicksByMonth().add(new MonthlyCountDTO(month, year, clicks));
+                }
+            }
+        }
+        
+        analytics.setTotalMessages(totalMessages);
+        analytics.setTotalClicks(totalClicks);
+        analytics.setClickThroughRate(totalMessages > 0 ? (double) totalClicks / totalMessages : 0);
         
         return analytics;
     }
     
+    /**
+     * Get a dense sends/clicks series for a store between two points in time.
+     * Hourly buckets are counted from the raw tables using range predicates on sent_at and
+     * clicked_at; daily and coarser buckets come from the daily rollup. Both leave out messages
+     * without a template, which the rollup does not hold, so hours add up to their day.
+     * @param storeId The store ID
+     * @param granularity The bucket size
+     * @param from Start of the range (inclusive); the first bucket starts at its truncation
+     * @param to End of the range (exclusive)
+     * @return The zero-filled series
+     * @throws IllegalArgumentException if the range is empty or has too many buckets
+     */
+    public ActivitySeriesDTO getActivitySeries(Integer storeId, TimeGranularity granularity,
+                                               LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        
+        LocalDateTime firstBucket = granularity.truncate(from);
+        int size = granularity.indexOf(firstBucket, granularity.truncate(to.minusNanos(1))) + 1;
+        if (size > MAX_SERIES_BUCKETS) {
+            throw new IllegalArgumentException("Series would have " + size + " buckets, the maximum is " + MAX_SERIES_BUCKETS);
+        }
+        
+        LocalDateTime[] buckets = new LocalDateTime[size];
+        LocalDateTime bucket = firstBucket;
+        for (int i = 0; i < size; i++) {
+            buckets[i] = bucket;
+            bucket = granularity.next(bucket);
+        }
+        LocalDateTime end = bucket;
+        
+        long[] sends = new long[size];
+        long[] clicks = new long[size];
+        String unit = granularity.getSqlUnit();
+        
+        if (granularity == TimeGranularity.HOUR) {
+            // Sends and clicks live in different tables; count both at the same time
+            CompletableFuture<List<Object[]>> sendRows = queryExecutor.submit("hourlySends",
+                    () -> sentTextMessageRepository.countMessagesByBucket(storeId, unit, firstBucket, end));
+            CompletableFuture<List<Object[]>> clickRows = queryExecutor.submit("hourlyClicks",
+                    () -> linkClickRepository.countClicksByBucket(storeId, unit, firstBucket, end));
+            for (Object[] row : AnalyticsQueryExecutor.join(sendRows)) {
+                addToBucket(sends, granularity, firstBucket, row[0], row[1]);
+            }
+            for (Object[] row : AnalyticsQueryExecutor.join(clickRows)) {
+                addToBucket(clicks, granularity, firstBucket, row[0], row[1]);
+            }
+        } else {
+            List<Object[]> rows = queryExecutor.run("rollupSeries", () -> dailyStatsRepository.countActivityByBucket(
+                    storeId, unit, firstBucket.toLocalDate(), end.toLocalDate()));
+            for (Object[] row : rows) {
+                addToBucket(sends, granularity, firstBucket, row[0], row[1]);
+                addToBucket(clicks, granularity, firstBucket, row[0], row[2]);
+            }
+        }
+        
+        double[] ctr = new double[size];
+        for (int i = 0; i < size; i++) {
+            ctr[i] = sends[i] > 0 ? (double) clicks[i] / sends[i] : 0;
+        }
+        
+        ActivitySeriesDTO series = new ActivitySeriesDTO();
+        series.setStoreId(storeId);
+        series.setGranularity(unit);
+        series.setFrom(firstBucket);
+        series.setTo(end);
+        series.setBuckets(buckets);
+        series.setSends(sends);
+        series.setClicks(clicks);
+        series.setClickThroughRate(ctr);
+        return series;
+    }
+    
+    private void addToBucket(long[] series, TimeGranularity granularity, LocalDateTime firstBucket,
+                             Object bucketStart, Object count) {
+        int index = granularity.indexOf(firstBucket, toLocalDateTime(bucketStart));
+        if (index >= 0 && index < series.length) {
+            series[index] += ((Number) count).longValue();
+        }
+    }
+    
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        return ((Timestamp) value).toLocalDateTime();
+    }
+    
     /**
      * Get recent analytics for a store using a Long ID
      * @param storeId The store ID as a Long
      * @param days Number of days to include
-     * @return Recent analytics data as a map
+     * @return Recent analytics data
      */
-    public Map<String, Object> getRecentAnalytics(Long storeId, int days) {
+    public RecentAnalyticsDTO getRecentAnalytics(Long storeId, int days) {
         return getRecentAnalytics(storeId.intValue(), days);
     }
     
-    public Map<String, Object> getRecentAnalytics(Integer storeId, int days) {
-        Map<String, Object> recentAnalytics = new HashMap<>();
+    public RecentAnalyticsDTO getRecentAnalytics(Integer storeId, int days) {
+        // Served from the in-memory sliding window when it covers the period
+        long[] totals = recentActivityCounters.getTotals(storeId, days);
+        long recentMessages;
+        long recentClicks;
+        if (totals != null) {
+            recentMessages = totals[0];
+            recentClicks = totals[1];
+        } else {
+            LocalDateTime endDate = LocalDateTime.now();
+            LocalDateTime startDate = endDate.minusDays(days);
+            
+            CompletableFuture<Long> messageCount = queryExecutor.submit("recentSends",
+                    () -> sentTextMessageRepository.countMessagesByStoreAndDateRange(storeId, startDate, endDate));
+            CompletableFuture<Long> clickCount = queryExecutor.submit("recentClicks",
+                    () -> linkClickRepository.countClicksByStoreAndDateRange(storeId, startDate, endDate));
+            recentMessages = AnalyticsQueryExecutor.join(messageCount);
+            recentClicks = AnalyticsQueryExecutor.join(clickCount);
+        }
         
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(days);
+        double ctr = recentMessages > 0 ? (double) recentClicks / recentMessages : 0;
+        return new RecentAnalyticsDTO(days + " days", recentMessages, recentClicks, ctr);
+    }
+    
+    /**
+     * Get the time-to-click distribution of a store, overall and per template
+     * @param storeId The store ID
+     * @return Histograms with p50/p90/p99 in seconds
+     */
+    public StoreTimeToClickDTO getStoreTimeToClick(Integer storeId) {
+        Map<Integer, LatencyHistogram> byTemplate = loadTimeToClick(List.of(storeId)).getOrDefault(storeId, Map.of());
+        
+        StoreTimeToClickDTO result = new StoreTimeToClickDTO();
+        result.setStoreId(storeId);
+        LatencyHistogram overall = new LatencyHistogram();
+        byTemplate.forEach((templateId, histogram) -> {
+            overall.merge(histogram);
+            result.getByTemplate().put(templateId, toTimeToClickDTO(histogram));
+        });
+        result.setOverall(toTimeToClickDTO(overall));
+        return result;
+    }
+    
+    /**
+     * Get the time-to-click distribution of an organization, overall and per store
+     * @param organizationId The organization ID
+     * @return Histograms with p50/p90/p99 in seconds
+     */
+    public OrganizationTimeToClickDTO getOrganizationTimeToClick(Integer organizationId) {
+        List<Integer> storeIds = storeRepository.findByOrganizationId(organizationId).stream()
+                .map(Store::getId)
+                .collect(Collectors.toList());
+        Map<Integer, Map<Integer, LatencyHistogram>> histograms = loadTimeToClick(storeIds);
         
-        Long recentMessages = sentTextMessageRepository.countMessagesByStoreAndDateRange(storeId, startDate, endDate);
+        OrganizationTimeToClickDTO result = new OrganizationTimeToClickDTO();
+        result.setOrganizationId(organizationId);
+        LatencyHistogram overall = new LatencyHistogram();
+        for (Integer storeId : storeIds) {
+            LatencyHistogram store = new LatencyHistogram();
+            histograms.getOrDefault(storeId, Map.of()).values().forEach(store::merge);
+            overall.merge(store);
+            result.getByStore().put(storeId, toTimeToClickDTO(store));
+        }
+        result.setOverall(toTimeToClickDTO(overall));
+        return result;
+    }
+    
+    /**
+     * Per-template histograms of the given stores, from memory once seeded and from the database before that
+     */
+    private Map<Integer, Map<Integer, LatencyHistogram>> loadTimeToClick(List<Integer> storeIds) {
+        Map<Integer, Map<Integer, LatencyHistogram>> histograms = timeToClickHistograms.getHistograms(storeIds);
+        if (histograms != null) {
+            return histograms;
+        }
         
-        recentAnalytics.put("period", days + " days");
-        recentAnalytics.put("recentMessages", recentMessages);
+        histograms = new HashMap<>();
+        if (storeIds.isEmpty()) {
+            return histograms;
+        }
+        List<Object[]> rows = queryExecutor.run("timeToClick", () -> linkClickRepository.countTimeToClickBucketsByStores(storeIds));
+        for (Object[] row : rows) {
+            histograms.computeIfAbsent((Integer) row[0], id -> new HashMap<>())
+                    .computeIfAbsent((Integer) row[1], id -> new LatencyHistogram())
+                    .add(((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+        }
+        return histograms;
+    }
+    
+    private static TimeToClickDTO toTimeToClickDTO(LatencyHistogram histogram) {
+        long[] counts = histogram.getCounts();
+        int used = counts.length;
+        while (used > 0 && counts[used - 1] == 0) {
+            used--;
+        }
+        double[] bounds = new double[used];
+        for (int i = 0; i < used; i++) {
+            bounds[i] = LatencyHistogram.upperBoundSeconds(i);
+        }
         
-        return recentAnalytics;
+        TimeToClickDTO dto = new TimeToClickDTO();
+        dto.setTotalClicks(histogram.getTotal());
+        dto.setP50Seconds(histogram.percentile(0.50));
+        dto.setP90Seconds(histogram.percentile(0.90));
+        dto.setP99Seconds(histogram.percentile(0.99));
+        dto.setBucketUpperBoundSeconds(bounds);
+        dto.setCounts(Arrays.copyOf(counts, used));
+        return dto;
     }
-} 
\ No newline at end of file
+}
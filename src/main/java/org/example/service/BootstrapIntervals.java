@@ -0,0 +1,176 @@
+package org.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prediction intervals for CTR forecasts by residual bootstrap. A linear trend is fitted to the
+ * observed days; each replicate adds resampled residuals to the fitted values, refits the trend
+ * and forecasts with one more resampled residual. The spread of the replicates around the base
+ * trend is returned as offsets, so the intervals can be put around the forecast of any engine.
+ * <p>
+ * Replicates are split across the forecast fork-join pool. Each leaf task reuses one series
+ * buffer for all its replicates and writes into a single shared sample array, so the cost
+ * grows with the number of replicates only by the arithmetic, not by allocation.
+ */
+@Component
+public class BootstrapIntervals {
+    /**
+     * Replicates or days handled by one leaf task
+     */
+    private static final int LEAF_SIZE = 32;
+
+    private final ForkJoinPool forecastPool;
+    private final int replicates;
+    private final double confidence;
+    private final long seed;
+
+    public BootstrapIntervals(ForkJoinPool forecastPool,
+                              @Value("${analytics.forecast.bootstrap.replicates:500}") int replicates,
+                              @Value("${analytics.forecast.bootstrap.confidence:0.9}") double confidence,
+                              @Value("${analytics.forecast.bootstrap.seed:0}") long seed) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be in (0, 1), got " + confidence);
+        }
+        this.forecastPool = forecastPool;
+        this.replicates = Math.max(1, replicates);
+        this.confidence = confidence;
+        this.seed = seed;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @param history The daily CTR history the forecast was trained on
+     * @param days    The number of forecast days, starting tomorrow
+     * @return {lower, upper} offsets per day to add to a point forecast, or null when the
+     *         history has fewer than three observed days
+     */
+    public double[][] offsets(DailyCTRSeries history, int days) {
+        int n = history.getObservedDays();
+        if (n < 3) {
+            return null;
+        }
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] values = history.getValues();
+        for (int i = 0, j = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) {
+                x[j] = i;
+                y[j++] = values[i];
+            }
+        }
+
+        double xMean = mean(x);
+        double sxx = sumOfSquares(x, xMean);
+        double slope = slope(x, y, xMean, sxx);
+        double intercept = mean(y) - slope * xMean;
+        double[] fitted = new double[n];
+        double[] residuals = new double[n];
+        for (int i = 0; i < n; i++) {
+            fitted[i] = intercept + slope * x[i];
+            residuals[i] = y[i] - fitted[i];
+        }
+        
+        long firstDay = LocalDate.now().toEpochDay() + 1 - history.getStart().toEpochDay();
+        double[] base = new double[days];
+        for (int h = 0; h < days; h++) {
+            base[h] = intercept + slope * (firstDay + h);
+        }
+
+        // Samples of day h are at [h * replicates, (h + 1) * replicates) so each day sorts in place
+        double[] samples = new double[days * replicates];
+        forecastPool.invoke(new RangeTask(0, replicates, (from, to) -> {
+            SplittableRandom random = new SplittableRandom(seed + from);
+            double[] series = new double[n];
+            for (int r = from; r < to; r++) {
+                for (int i = 0; i < n; i++) {
+                    series[i] = fitted[i] + residuals[random.nextInt(n)];
+                }
+                double replicateSlope = slope(x, series, xMean, sxx);
+                double replicateIntercept = mean(series) - replicateSlope * xMean;
+                for (int h = 0; h < days; h++) {
+                    double forecast = replicateIntercept + replicateSlope * (firstDay + h) + residuals[random.nextInt(n)];
+                    samples[h * replicates + r] = forecast - base[h];
+                }
+            }
+        }));
+
+        double[][] offsets = new double[2][days];
+        int lowerRank = (int) Math.floor((1 - confidence) / 2 * (replicates - 1));
+        int upperRank = (int) Math.ceil((1 + confidence) / 2 * (replicates - 1));
+        forecastPool.invoke(new RangeTask(0, days, (from, to) -> {
+            for (int h = from; h < to; h++) {
+                int start = h * replicates;
+                Arrays.sort(samples, start, start + replicates);
+                offsets[0][h] = samples[start + lowerRank];
+                offsets[1][h] = samples[start + upperRank];
+            }
+        }));
+        return offsets;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double sumOfSquares(double[] values, double mean) {
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum;
+    }
+
+    private static double slope(double[] x, double[] y, double xMean, double sxx) {
+        if (sxx == 0) {
+            return 0;
+        }
+        double sxy = 0;
+        for (int i = 0; i < x.length; i++) {
+            sxy += (x[i] - xMean) * y[i];
+        }
+        return sxy / sxx;
+    }
+
+    private interface RangeBody {
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits [from, to) in halves until a range fits in one leaf
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RangeBody body;
+
+        RangeTask(int from, int to, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                body.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, body), new RangeTask(middle, to, body));
+        }
+    }
+}
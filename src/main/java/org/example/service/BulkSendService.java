@@ -0,0 +1,109 @@
+package org.example.service;
+
+import org.example.dto.BulkMessageDTO;
+import org.example.dto.BulkSendRequestDTO;
+import org.example.dto.BulkSendResultDTO;
+import org.example.repository.SentTextMessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records campaign sends in bulk. Message IDs are allocated from the table's sequence in one
+ * query up front, so the rows can be written with plain JDBC batches; identity inserts through
+ * JPA would cost one round trip per message. With reWriteBatchedInserts on the PostgreSQL
+ * driver each batch goes out as multi-row INSERT statements.
+ * Activity is recorded once per hour of the campaign rather than once per message.
+ */
+@Service
+public class BulkSendService {
+    private static final String INSERT_SQL =
+            "INSERT INTO sent_text_message (id, store_id, client_id, template_id, message_content, sent_at, tracking_link) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final SentTextMessageRepository sentTextMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageActivityService messageActivityService;
+    private final TrackingCodes trackingCodes;
+    private final int batchSize;
+
+    public BulkSendService(SentTextMessageRepository sentTextMessageRepository,
+                           JdbcTemplate jdbcTemplate,
+                           MessageActivityService messageActivityService,
+                           TrackingCodes trackingCodes,
+                           @Value("${messages.bulk.batch-size:5000}") int batchSize) {
+        this.sentTextMessageRepository = sentTextMessageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.messageActivityService = messageActivityService;
+        this.trackingCodes = trackingCodes;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Inserts the messages of a bulk send and records them in the daily rollup
+     * @param request The store, template and messages
+     * @return The assigned IDs and tracking codes, in the order of the request's messages
+     */
+    @Transactional
+    public BulkSendResultDTO recordSends(BulkSendRequestDTO request) {
+        List<BulkMessageDTO> messages = request.getMessages();
+        List<Number> allocated = sentTextMessageRepository.allocateIds(messages.size());
+        if (allocated.size() != messages.size()) {
+            throw new IllegalStateException("Allocated " + allocated.size() + " IDs for " + messages.size() + " messages");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Row> rows = new ArrayList<>(messages.size());
+        List<Integer> ids = new ArrayList<>(messages.size());
+        List<String> codes = new ArrayList<>(messages.size());
+        Map<LocalDateTime, long[]> sendsPerHour = new TreeMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            BulkMessageDTO message = messages.get(i);
+            int id = allocated.get(i).intValue();
+            LocalDateTime sentAt = message.getSentAt() != null ? message.getSentAt() : now;
+            rows.add(new Row(id, message, Timestamp.valueOf(sentAt)));
+            ids.add(id);
+            codes.add(trackingCodes.encode(id, request.getStoreId()));
+            sendsPerHour.computeIfAbsent(sentAt.truncatedTo(ChronoUnit.HOURS), hour -> new long[1])[0]++;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, batchSize, (ps, row) -> bind(ps, request, row));
+        sendsPerHour.forEach((hour, count) ->
+                messageActivityService.recordMessagesSent(request.getStoreId(), request.getTemplateId(), hour, count[0]));
+        return new BulkSendResultDTO(ids, codes);
+    }
+
+    private static void bind(PreparedStatement ps, BulkSendRequestDTO request, Row row) throws SQLException {
+        BulkMessageDTO message = row.message();
+        ps.setInt(1, row.id());
+        ps.setInt(2, request.getStoreId());
+        setInteger(ps, 3, message.getClientId());
+        setInteger(ps, 4, request.getTemplateId());
+        ps.setString(5, message.getMessageContent());
+        ps.setTimestamp(6, row.sentAt());
+        ps.setString(7, message.getTrackingLink());
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private record Row(int id, BulkMessageDTO message, Timestamp sentAt) {
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.repository.StoreRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nightly job that trains every store's model and writes its forecast to the ctr_forecast table.
+ * One 365-day forecast is stored per store; 30- and 90-day requests read its first rows.
+ */
+@Component
+@RequiredArgsConstructor
+public class CTRForecastJob {
+    private static final Logger logger = LoggerFactory.getLogger(CTRForecastJob.class);
+
+    private final StoreRepository storeRepository;
+    private final CTRPredictionService ctrPredictionService;
+    private final CTRForecastStore forecastStore;
+
+    @Scheduled(cron = "${analytics.forecast.table.cron:0 30 1 * * *}")
+    public void generateForecasts() {
+        LocalDateTime generatedAt = LocalDateTime.now();
+        List<Integer> storeIds = storeRepository.findAllIds();
+        logger.info("Generating CTR forecasts for {} stores", storeIds.size());
+        
+        AtomicInteger failed = new AtomicInteger();
+        ctrPredictionService.trainModels(storeIds, model -> {
+            try {
+                forecastStore.replace(model, generatedAt);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.warn("Could not store CTR forecast for store {}: {}", model.getStoreId(), e.getMessage());
+            }
+        });
+        
+        logger.info("Generated CTR forecasts for {} stores, {} failed", storeIds.size() - failed.get(), failed.get());
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * A store's trained CTR forecast. Forecasts are recursive, so the first N steps of a long
+ * forecast equal an N-day forecast; the model is therefore run once for the full horizon
+ * at training time and requests only take a prefix.
+ */
+public class CTRForecastModel {
+    private final Integer storeId;
+    private final String method;
+    private final double[] forecast;
+    private final LocalDate lastDataDate;
+    private final LocalDateTime trainedAt;
+    private volatile boolean stale;
+
+    /**
+     * @param storeId The store the model was trained for
+     * @param method How the forecast was produced, e.g. "time-series", "regression" or "average"
+     * @param forecast Predicted CTR for the days after training, day 1 first
+     * @param lastDataDate Latest day in the training history, or null when there was none
+     */
+    public CTRForecastModel(Integer storeId, String method, double[] forecast, LocalDate lastDataDate) {
+        this(storeId, method, forecast, lastDataDate, LocalDateTime.now());
+    }
+
+    /**
+     * Restores a model that was trained earlier, e.g. one read back from a model file
+     * @param trainedAt When the model was trained
+     */
+    public CTRForecastModel(Integer storeId, String method, double[] forecast, LocalDate lastDataDate, LocalDateTime trainedAt) {
+        this.storeId = storeId;
+        this.method = method;
+        this.forecast = forecast;
+        this.lastDataDate = lastDataDate;
+        this.trainedAt = trainedAt;
+    }
+
+    /**
+     * @param days Number of days to return
+     * @return Predicted CTR for the next days, at most {@link #getHorizon()} of them
+     */
+    public double[] forecast(int days) {
+        return Arrays.copyOf(forecast, Math.min(days, forecast.length));
+    }
+
+    /**
+     * Predicted CTR from tomorrow on. Day 1 of the forecast is the day after training, so a model
+     * trained on an earlier day, e.g. one restored after a restart, skips the days that have
+     * passed since; otherwise its forecast would be served shifted by that many days.
+     * @param days Number of days to return
+     * @param today The day the forecast is served on
+     * @return Predicted CTR for the days after today, fewer than days when the model's horizon ends
+     */
+    public double[] forecastFrom(LocalDate today, int days) {
+        long elapsed = Math.max(0, ChronoUnit.DAYS.between(trainedAt.toLocalDate(), today));
+        int from = (int) Math.min(elapsed, forecast.length);
+        return Arrays.copyOfRange(forecast, from, (int) Math.min((long) from + days, forecast.length));
+    }
+
+    public int getHorizon() {
+        return forecast.length;
+    }
+
+    public Integer getStoreId() {
+        return storeId;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public LocalDate getLastDataDate() {
+        return lastDataDate;
+    }
+
+    public LocalDateTime getTrainedAt() {
+        return trainedAt;
+    }
+
+    /**
+     * @return Whether data newer than the training history has arrived
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Marks the model for retraining regardless of its history
+     */
+    void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Marks the model stale when activity on a day after its training history is recorded
+     * @param activityDate Day of the recorded activity
+     * @return Whether the model became stale
+     */
+    boolean markStaleIfNewer(LocalDate activityDate) {
+        if (!stale && (lastDataDate == null || activityDate.isAfter(lastDataDate))) {
+            stale = true;
+            return true;
+        }
+        return false;
+    }
+}
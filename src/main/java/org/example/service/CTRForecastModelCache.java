@@ -0,0 +1,165 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Trained forecast models per store, bounded by size and evicted when not used for a while.
+ * A model is trained on the first request for its store. When a day of data newer than its
+ * training history arrives it is marked stale; the next request still gets the old model
+ * while a new one is trained in the background, so requests never wait for retraining.
+ * Models are saved to a {@link CTRForecastModelFileStore} periodically and on shutdown; after
+ * a restart a store's saved model is served instead of training one, and is retrained in the
+ * background when it was trained on an earlier day. Until then its forecast is served from
+ * today, see {@link CTRForecastModel#forecastFrom}.
+ */
+@Component
+public class CTRForecastModelCache {
+    private static final Logger logger = LoggerFactory.getLogger(CTRForecastModelCache.class);
+
+    private final Cache<Integer, CTRForecastModel> models;
+    private final Executor executor;
+    private final CTRForecastModelFileStore fileStore;
+    private final Set<Integer> retraining = ConcurrentHashMap.newKeySet();
+
+    public CTRForecastModelCache(@Value("${analytics.forecast.model.maximum-size:500}") long maximumSize,
+                                 @Value("${analytics.forecast.model.expire-after-access:24h}") Duration expireAfterAccess,
+                                 @Qualifier("analyticsExecutor") Executor executor,
+                                 CTRForecastModelFileStore fileStore) {
+        this.models = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        this.executor = executor;
+        this.fileStore = fileStore;
+    }
+
+    /**
+     * Returns the store's model, training it on the calling thread when there is none yet
+     * @param storeId The store ID
+     * @param trainer Trains a model for a store
+     * @return A trained model, possibly stale while its replacement is being trained
+     */
+    public CTRForecastModel get(Integer storeId, Function<Integer, CTRForecastModel> trainer) {
+        CTRForecastModel model = models.get(storeId, id -> loadOrTrain(id, trainer));
+        if (model.isStale()) {
+            retrainInBackground(storeId, trainer);
+        }
+        return model;
+    }
+
+    /**
+     * Called when activity is recorded, so models trained before that day get retrained
+     * @param storeId The store the activity belongs to
+     * @param activityDate Day of the activity
+     */
+    public void onActivity(Integer storeId, LocalDate activityDate) {
+        CTRForecastModel model = models.getIfPresent(storeId);
+        if (model != null && model.markStaleIfNewer(activityDate)) {
+            logger.debug("Forecast model for store {} is stale after activity on {}", storeId, activityDate);
+        }
+    }
+
+    /**
+     * Retrains a cached model on the calling thread
+     * @param storeId The store ID
+     * @param trainer Trains a model for a store
+     */
+    public void retrain(Integer storeId, Function<Integer, CTRForecastModel> trainer) {
+        if (models.getIfPresent(storeId) != null) {
+            models.put(storeId, trainer.apply(storeId));
+        }
+    }
+
+    /**
+     * Replaces a cached model with one trained elsewhere, e.g. by the nightly forecast job
+     * @param model The new model
+     */
+    public void replaceIfPresent(CTRForecastModel model) {
+        models.asMap().computeIfPresent(model.getStoreId(), (id, current) -> model);
+    }
+
+    /**
+     * @return IDs of the stores that currently have a model
+     */
+    public Set<Integer> getStoreIds() {
+        return new HashSet<>(models.asMap().keySet());
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = models.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", models.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("retraining", retraining.size());
+        return result;
+    }
+
+    /**
+     * Saves the cached models to the model file
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${analytics.forecast.model.save-interval:PT15M}",
+               initialDelayString = "${analytics.forecast.model.save-interval:PT15M}")
+    public void save() {
+        try {
+            fileStore.save(models.asMap().values());
+        } catch (IOException e) {
+            logger.warn("Could not save forecast models: {}", e.getMessage());
+        }
+    }
+
+    private CTRForecastModel loadOrTrain(Integer storeId, Function<Integer, CTRForecastModel> trainer) {
+        CTRForecastModel saved = fileStore.load(storeId);
+        // A saved model whose horizon has passed has nothing left to serve
+        if (saved == null || saved.forecastFrom(LocalDate.now(), 1).length == 0) {
+            return trainer.apply(storeId);
+        }
+        if (saved.getTrainedAt().toLocalDate().isBefore(LocalDate.now())) {
+            saved.markStale();
+        }
+        return saved;
+    }
+
+    private void retrainInBackground(Integer storeId, Function<Integer, CTRForecastModel> trainer) {
+        if (!retraining.add(storeId)) {
+            return; // Already being retrained
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    retrain(storeId, trainer);
+                } catch (Exception e) {
+                    logger.warn("Could not retrain forecast model for store {}: {}", storeId, e.getMessage());
+                } finally {
+                    retraining.remove(storeId);
+                }
+            });
+        } catch (RuntimeException e) {
+            retraining.remove(storeId);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.TreeMap;
+
+/**
+ * Trained forecast models in a local file, so a restarted node serves warm predictions.
+ * The file is memory-mapped at startup and a model is only decoded when its store is first
+ * requested. Models are fixed-size records sorted by store ID, found by binary search:
+ * <pre>
+ * header: magic int, version int, horizon int, count int
+ * record: storeId int, lastDataDate epoch day int (MIN_VALUE when none),
+ *         trainedAt epoch second long (UTC), method 16 bytes ASCII, forecast horizon * float
+ * </pre>
+ * Forecasts are stored as floats, which is ample precision for a CTR and halves the file.
+ * An empty {@code analytics.forecast.model.file} disables the store.
+ */
+@Component
+public class CTRForecastModelFileStore {
+    private static final Logger logger = LoggerFactory.getLogger(CTRForecastModelFileStore.class);
+
+    private static final int MAGIC = 0x4354524D; // "CTRM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int METHOD_SIZE = 16;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final Path path;
+    private volatile Mapped mapped;
+
+    public CTRForecastModelFileStore(@Value("${analytics.forecast.model.file:}") String file) {
+        this.path = file == null || file.isBlank() ? null : Paths.get(file);
+        if (path != null) {
+            mapped = map(path);
+        }
+    }
+
+    /**
+     * @param storeId The store ID
+     * @return The store's saved model, or null when the file has none
+     */
+    public CTRForecastModel load(Integer storeId) {
+        Mapped current = mapped;
+        if (current == null) {
+            return null;
+        }
+        int index = current.indexOf(storeId);
+        return index < 0 ? null : current.read(index);
+    }
+
+    /**
+     * Writes the models to the file, keeping saved models of other stores, and maps the new file.
+     * The file is written next to the old one and moved over it, so readers never see a partial file.
+     *
+     * @param models Models to save; they replace saved models of the same stores
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save(Collection<CTRForecastModel> models) throws IOException {
+        if (path == null || models.isEmpty()) {
+            return;
+        }
+        int horizon = models.iterator().next().getHorizon();
+        TreeMap<Integer, Object> records = new TreeMap<>();
+        Mapped current = mapped;
+        if (current != null && current.horizon == horizon) {
+            for (int i = 0; i < current.count; i++) {
+                records.put(current.storeIdAt(i), i);
+            }
+        }
+        for (CTRForecastModel model : models) {
+            if (model.getHorizon() == horizon) {
+                records.put(model.getStoreId(), model);
+            }
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int recordSize = recordSize(horizon);
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(horizon);
+            out.writeInt(records.size());
+            byte[] copy = new byte[recordSize];
+            for (Object record : records.values()) {
+                if (record instanceof CTRForecastModel) {
+                    write(out, (CTRForecastModel) record);
+                } else {
+                    current.copy((Integer) record, copy);
+                    out.write(copy);
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mapped = map(path);
+        logger.info("Saved {} forecast models to {}", records.size(), path);
+    }
+
+    private static void write(DataOutputStream out, CTRForecastModel model) throws IOException {
+        out.writeInt(model.getStoreId());
+        out.writeInt(model.getLastDataDate() != null ? (int) model.getLastDataDate().toEpochDay() : NO_DATE);
+        out.writeLong(model.getTrainedAt().toEpochSecond(ZoneOffset.UTC));
+        byte[] method = new byte[METHOD_SIZE];
+        byte[] name = model.getMethod().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(name, 0, method, 0, Math.min(name.length, METHOD_SIZE));
+        out.write(method);
+        for (double value : model.forecast(model.getHorizon())) {
+            out.writeFloat((float) value);
+        }
+    }
+
+    private static int recordSize(int horizon) {
+        return 4 + 4 + 8 + METHOD_SIZE + 4 * horizon;
+    }
+
+    private static Mapped map(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                logger.warn("Ignoring forecast model file {} with an unknown format", path);
+                return null;
+            }
+            Mapped mapped = new Mapped(buffer, buffer.getInt(8), buffer.getInt(12));
+            if ((long) HEADER_SIZE + (long) mapped.count * mapped.recordSize > buffer.capacity()) {
+                logger.warn("Ignoring truncated forecast model file {}", path);
+                return null;
+            }
+            logger.info("Mapped {} saved forecast models from {}", mapped.count, path);
+            return mapped;
+        } catch (IOException e) {
+            logger.warn("Could not map forecast model file {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A mapped model file; only absolute reads are used, so it can be shared between threads
+     */
+    private static final class Mapped {
+        private final ByteBuffer buffer;
+        private final int horizon;
+        private final int count;
+        private final int recordSize;
+
+        Mapped(ByteBuffer buffer, int horizon, int count) {
+            this.buffer = buffer;
+            this.horizon = horizon;
+            this.count = count;
+            this.recordSize = recordSize(horizon);
+        }
+
+        int storeIdAt(int index) {
+            return buffer.getInt(HEADER_SIZE + index * recordSize);
+        }
+
+        int indexOf(int storeId) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int id = storeIdAt(middle);
+                if (id < storeId) {
+                    low = middle + 1;
+                } else if (id > storeId) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        CTRForecastModel read(int index) {
+            int position = HEADER_SIZE + index * recordSize;
+            int storeId = buffer.getInt(position);
+            int lastDataDay = buffer.getInt(position + 4);
+            long trainedAt = buffer.getLong(position + 8);
+            byte[] method = new byte[METHOD_SIZE];
+            buffer.get(position + 16, method);
+            int length = 0;
+            while (length < METHOD_SIZE && method[length] != 0) {
+                length++;
+            }
+            double[] forecast = new double[horizon];
+            int values = position + 16 + METHOD_SIZE;
+            for (int i = 0; i < horizon; i++) {
+                forecast[i] = buffer.getFloat(values + 4 * i);
+            }
+            return new CTRForecastModel(storeId, new String(method, 0, length, StandardCharsets.US_ASCII), forecast,
+                    lastDataDay == NO_DATE ? null : LocalDate.ofEpochDay(lastDataDay),
+                    LocalDateTime.ofEpochSecond(trainedAt, 0, ZoneOffset.UTC));
+        }
+
+        void copy(int index, byte[] target) {
+            buffer.get(HEADER_SIZE + index * recordSize, target);
+        }
+    }
+}
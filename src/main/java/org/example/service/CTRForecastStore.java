@@ -0,0 +1,84 @@
+package org.example.service;
+
+import org.example.repository.StoreCTRForecastRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized CTR forecasts in the ctr_forecast table. The nightly job replaces each store's
+ * rows with the latest run; requests read them back with one indexed lookup and only train a
+ * model when a store has no fresh run covering the requested days.
+ */
+@Component
+public class CTRForecastStore {
+    private static final String INSERT_SQL =
+            "INSERT INTO ctr_forecast (store_id, generated_at, forecast_date, ctr) VALUES (?, ?, ?, ?)";
+
+    private final StoreCTRForecastRepository forecastRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration maxAge;
+
+    public CTRForecastStore(StoreCTRForecastRepository forecastRepository,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${analytics.forecast.table.max-age:36h}") Duration maxAge) {
+        this.forecastRepository = forecastRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Stored predictions for the days after today
+     * @param storeId The store ID
+     * @param days Number of days wanted
+     * @return A map of dates to CTR values, or null when there is no fresh run covering all days
+     */
+    public Map<String, Double> findFresh(Integer storeId, int days) {
+        List<Object[]> rows = forecastRepository.findUpcoming(
+                storeId, LocalDate.now(), LocalDateTime.now().minus(maxAge), days);
+        if (rows.size() < days) {
+            return null;
+        }
+        
+        Map<String, Double> predictions = new HashMap<>();
+        for (Object[] row : rows) {
+            LocalDate date = row[0] instanceof LocalDate ? (LocalDate) row[0] : ((Date) row[0]).toLocalDate();
+            predictions.put(date.format(DateTimeFormatter.ISO_LOCAL_DATE), ((Number) row[1]).doubleValue());
+        }
+        return predictions;
+    }
+
+    /**
+     * Replaces a store's stored forecast with a freshly trained model's forecast
+     * @param model The trained model; day 1 of its forecast is the day after generatedAt
+     * @param generatedAt When the run started
+     */
+    @Transactional
+    public void replace(CTRForecastModel model, LocalDateTime generatedAt) {
+        forecastRepository.deleteByStoreId(model.getStoreId());
+        
+        double[] forecast = model.forecast(model.getHorizon());
+        Timestamp generated = Timestamp.valueOf(generatedAt);
+        LocalDate firstDay = generatedAt.toLocalDate().plusDays(1);
+        List<Object[]> rows = new ArrayList<>(forecast.length);
+        for (int i = 0; i < forecast.length; i++) {
+            if (!Double.isNaN(forecast[i])) {
+                double ctr = Math.max(0, Math.min(1, forecast[i]));
+                rows.add(new Object[]{model.getStoreId(), generated, Date.valueOf(firstDay.plusDays(i)), ctr});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+}
@@ -1,25 +1,32 @@
 package org.example.service;
 
 import lombok.RequiredArgsConstructor;
-import org.example.repository.LinkClickRepository;
-import org.example.repository.SentTextMessageRepository;
+import org.example.dto.CTRPredictionDTO;
+import org.example.model.Store;
+import org.example.repository.StoreTemplateDailyStatsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import weka.classifiers.evaluation.NumericPrediction;
-import weka.classifiers.functions.LinearRegression;
-import weka.classifiers.timeseries.WekaForecaster;
-import weka.core.Attribute;
-import weka.core.DenseInstance;
-import weka.core.Instance;
-import weka.core.Instances;
 
+import java.sql.Date;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,322 +35,437 @@ public class CTRPredictionService {
     private static final Logger logger = LoggerFactory.getLogger(CTRPredictionService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private final LinkClickRepository linkClickRepository;
-    private final SentTextMessageRepository sentTextMessageRepository;
+    /**
+     * Days forecast when a model is trained; the prediction endpoint accepts up to this many
+     */
+    static final int MODEL_HORIZON_DAYS = 365;
+
+    /**
+     * Stores per history query in a batch, keeping the IN list well below driver parameter limits
+     */
+    static final int BATCH_QUERY_SIZE = 1000;
+
+    private final StoreTemplateDailyStatsRepository dailyStatsRepository;
+    private final CTRForecastModelCache forecastModelCache;
+    private final ExecutorService forecastPool;
+    private final CTRForecastStore forecastStore;
+    private final ForecastingEngines forecastingEngines;
+    private final BootstrapIntervals bootstrapIntervals;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
 
     /**
      * Predicts the click-through rate (CTR) for a given store for the specified number of days into the future.
+     * Predictions are read from the nightly forecast table when it has a fresh run for the store;
+     * otherwise they come from the store's cached model, see {@link CTRForecastModelCache}.
      *
      * @param storeId The ID of the store to predict for
-     * @param days    The number of days to predict into the future
+     * @param days    The number of days to predict into the future, at most {@value #MODEL_HORIZON_DAYS}
      * @return A map of dates to predicted CTR values
      */
     public Map<String, Double> predictCTR(Long storeId, int days) {
-        try {
-            // Get historical CTR data
-            Map<LocalDate, Double> historicalCTR = getHistoricalCTR(storeId);
+        return predictCTR(storeId, days, null);
+    }
 
-            if (historicalCTR.size() < 7) {
-                // Need at least 7 days of data for a reasonable forecast
-                logger.warn("Not enough historical data for store {}: {} days available", storeId, historicalCTR.size());
-                return generateFallbackPredictions(historicalCTR, days);
-            }
+    /**
+     * Predicts CTR with a chosen forecasting engine. The configured default engine is served from the
+     * forecast table and model cache as usual; other engines are meant for comparison, so their model
+     * is trained on every request and never stored. The online engine keeps its own per-store models
+     * up to date and is always served from them.
+     * Concurrent calls for the same store and engine share one computation: a call waits for one already
+     * in flight with at least as many days and takes the first days of its result.
+     *
+     * @param storeId The ID of the store to predict for
+     * @param days    The number of days to predict into the future, at most {@value #MODEL_HORIZON_DAYS}
+     * @param engine  Name of the forecasting engine, or null for the default
+     * @return A map of dates to predicted CTR values
+     * @throws IllegalArgumentException if there is no engine with that name
+     */
+    public Map<String, Double> predictCTR(Long storeId, int days, String engine) {
+        ForecastingEngine selected = engine != null ? forecastingEngines.get(engine) : forecastingEngines.getDefault();
+        
+        // Concurrent requests for the same store and engine share one computation when it covers their days
+        String key = storeId + "/" + selected.getName();
+        Flight mine = new Flight(days);
+        Flight flight = inFlight.merge(key, mine, (current, fresh) -> current.days >= fresh.days ? current : fresh);
+        if (flight != mine) {
+            return truncate(AnalyticsQueryExecutor.join(flight.result), days);
+        }
+        try {
+            Map<String, Double> predictions = computePredictions(storeId, days, selected);
+            mine.result.complete(predictions);
+            return predictions;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
 
+    private Map<String, Double> computePredictions(Long storeId, int days, ForecastingEngine selected) {
+        if (selected instanceof OnlineForecastingEngine) {
+            // Online models are updated by the write path, so they bypass the table and model cache
             try {
-                // Try to use the advanced time series forecasting if available
-                return predictUsingTimeSeriesForecasting(historicalCTR, days);
+                return toPredictions(((OnlineForecastingEngine) selected).forecast(storeId.intValue(), days, this::loadHistory));
             } catch (Exception e) {
-                logger.warn("Error using time series forecasting, falling back to simple regression: {}", e.getMessage());
-                // Fall back to a simpler approach if the time series package is not available
-                return predictUsingSimpleRegression(historicalCTR, days);
+                logger.error("Error making online CTR predictions", e);
+                return toPredictions(averageForecast(DailyCTRSeries.empty(), days));
             }
+        }
+        if (selected != forecastingEngines.getDefault()) {
+            DailyCTRSeries history = getHistoricalCTR(storeId.intValue());
+            return toPredictions(trainModel(storeId.intValue(), history, selected, days).forecast(days));
+        }
+        
+        try {
+            Map<String, Double> stored = forecastStore.findFresh(storeId.intValue(), days);
+            if (stored != null) {
+                return stored;
+            }
+            CTRForecastModel model = forecastModelCache.get(storeId.intValue(), this::trainModel);
+            return toPredictions(model.forecastFrom(LocalDate.now(), days));
         } catch (Exception e) {
             logger.error("Error making CTR predictions", e);
-            return generateFallbackPredictions(new HashMap<>(), days);
+            return toPredictions(averageForecast(DailyCTRSeries.empty(), days));
         }
     }
 
     /**
-     * Uses Weka's TimeSeriesForecasting package to predict future CTR values.
-     *
-     * @param historicalCTR The historical CTR data
-     * @param days          The number of days to predict
-     * @return A map of dates to predicted CTR values
+     * Keeps the first days of a prediction, which is how a shorter horizon is served from a longer one
      */
-    Map<String, Double> predictUsingTimeSeriesForecasting(Map<LocalDate, Double> historicalCTR, int days) {
-        try {
-            if (historicalCTR.isEmpty()) {
-                logger.warn("No historical data provided for time series forecasting");
-                throw new RuntimeException("No historical data available");
-            }
-            
-            // Use the regression data format which uses numeric day offsets instead of date strings
-            // This is more compatible with Weka's forecasting capabilities
-            Instances trainingData = prepareTrainingDataForRegression(historicalCTR);
-            
-            if (trainingData.isEmpty()) {
-                logger.warn("Empty training dataset created");
-                throw new RuntimeException("Empty training dataset");
+    private static Map<String, Double> truncate(Map<String, Double> predictions, int days) {
+        String lastDate = LocalDate.now().plusDays(days).format(DATE_FORMATTER);
+        Map<String, Double> truncated = new HashMap<>();
+        predictions.forEach((date, ctr) -> {
+            if (date.compareTo(lastDate) <= 0) {
+                truncated.put(date, ctr);
             }
-            
-            // Set up and train the forecaster
-            WekaForecaster forecaster = new WekaForecaster();
-            forecaster.setFieldsToForecast("ctr");
-            
-            // Configure the forecaster for numeric time indicators
-            forecaster.getTSLagMaker().setTimeStampField("day_offset"); // Use day_offset as time indicator
-            forecaster.getTSLagMaker().setMinLag(1);
-            forecaster.getTSLagMaker().setMaxLag(7); // Use up to 7 days of lag
-            
-            // Use linear regression as the base forecaster
-            forecaster.setBaseForecaster(new LinearRegression());
-            
-            // Train with the prepared data
-            logger.info("Building forecaster with {} instances", trainingData.size());
-            forecaster.buildForecaster(trainingData);
-            
-            // Prime the forecaster with the same data used for training
-            logger.info("Priming forecaster with training data");
-            forecaster.primeForecaster(trainingData);
-            
-            // Make forecast
-            logger.info("Forecasting for the next {} days", days);
-            List<List<NumericPrediction>> forecast = forecaster.forecast(days);
-            
-            // Convert the forecast to a map of date -> CTR
-            Map<String, Double> predictions = new HashMap<>();
-            LocalDate currentDate = LocalDate.now();
-            
-            for (int i = 0; i < forecast.size(); i++) {
-                List<NumericPrediction> predsAtStep = forecast.get(i);
-                if (predsAtStep.isEmpty()) {
-                    logger.warn("No prediction available for day {}", i+1);
-                    continue;
-                }
-                
-                NumericPrediction predForTarget = predsAtStep.get(0); // CTR is our only target
-                LocalDate forecastDate = currentDate.plusDays(i + 1);
-                
-                double predictedCTR = predForTarget.predicted();
-                
-                // Ensure CTR is between 0 and 1
-                predictedCTR = Math.max(0, Math.min(1, predictedCTR));
-                
-                predictions.put(forecastDate.format(DATE_FORMATTER), predictedCTR);
-            }
-            
-            // If no predictions were generated, throw an exception to fall back to simple regression
-            if (predictions.isEmpty()) {
-                throw new RuntimeException("No predictions generated by forecaster");
+        });
+        return truncated;
+    }
+
+    /**
+     * A prediction being computed for a number of days; followers wait for its result
+     */
+    private static final class Flight {
+        private final int days;
+        private final CompletableFuture<Map<String, Double>> result = new CompletableFuture<>();
+
+        Flight(int days) {
+            this.days = days;
+        }
+    }
+
+    /**
+     * Adds prediction intervals around the point predictions of a store, computed by residual
+     * bootstrap on the store's daily history. Stores with fewer than three days of history
+     * get no intervals.
+     *
+     * @param prediction A prediction with its store ID and point predictions set
+     * @param days       The number of days that were predicted
+     */
+    public void addIntervals(CTRPredictionDTO prediction, int days) {
+        double[][] offsets = bootstrapIntervals.offsets(getHistoricalCTR(prediction.getStoreId().intValue()), days);
+        if (offsets == null) {
+            return;
+        }
+        
+        Map<String, Double> lowerBounds = new HashMap<>();
+        Map<String, Double> upperBounds = new HashMap<>();
+        LocalDate currentDate = LocalDate.now();
+        for (int i = 0; i < days; i++) {
+            String date = currentDate.plusDays(i + 1).format(DATE_FORMATTER);
+            Double predictedCTR = prediction.getPredictions().get(date);
+            if (predictedCTR == null) {
+                continue;
             }
-            
-            return predictions;
-        } catch (Exception e) {
-            logger.warn("Error using time series forecasting: {}", e.getMessage());
-            throw new RuntimeException("Time series forecasting unavailable", e);
+            lowerBounds.put(date, Math.max(0, Math.min(1, predictedCTR + offsets[0][i])));
+            upperBounds.put(date, Math.max(0, Math.min(1, predictedCTR + offsets[1][i])));
+        }
+        prediction.setConfidenceLevel(bootstrapIntervals.getConfidence());
+        prediction.setLowerBounds(lowerBounds);
+        prediction.setUpperBounds(upperBounds);
+    }
+
+    /**
+     * @return Names of the forecasting engines that can be chosen per request
+     */
+    public Set<String> getEngineNames() {
+        return forecastingEngines.getNames();
+    }
+
+    /**
+     * Predicts CTR for many stores. The daily history of all of them is loaded with one grouped
+     * query per {@value #BATCH_QUERY_SIZE} stores, models missing from the cache are trained in
+     * parallel on the forecast pool, and each store's prediction is handed to the consumer on the
+     * calling thread as soon as it is ready.
+     *
+     * @param stores   The stores to predict for
+     * @param days     The number of days to predict into the future, at most {@value #MODEL_HORIZON_DAYS}
+     * @param onResult Receives one prediction per store, in the order they finish
+     */
+    public void predictBatch(List<Store> stores, int days, Consumer<CTRPredictionDTO> onResult) {
+        Map<Integer, DailyCTRSeries.Builder> historyByStore = new HashMap<>();
+        Map<Integer, long[]> totalsByStore = new HashMap<>();
+        List<Integer> storeIds = stores.stream().map(Store::getId).collect(Collectors.toList());
+        for (int from = 0; from < storeIds.size(); from += BATCH_QUERY_SIZE) {
+            List<Integer> chunk = storeIds.subList(from, Math.min(from + BATCH_QUERY_SIZE, storeIds.size()));
+            loadDailyActivity(chunk, historyByStore, totalsByStore);
+        }
+
+        List<Callable<CTRPredictionDTO>> tasks = new ArrayList<>();
+        for (Store store : stores) {
+            DailyCTRSeries historicalCTR = build(historyByStore.get(store.getId()));
+            long[] totals = totalsByStore.getOrDefault(store.getId(), new long[2]);
+            tasks.add(() -> predictFromHistory(store, days, historicalCTR, totals));
         }
+        runOnForecastPool(tasks, onResult);
     }
 
     /**
-     * Uses a simple linear regression to predict future CTR values.
-     * This is used as a fallback when the time series forecasting package is not available.
+     * Trains fresh models for many stores, {@value #BATCH_QUERY_SIZE} at a time, with one grouped
+     * history query per chunk and training in parallel on the forecast pool. Stores that already
+     * have a cached model get the new one.
      *
-     * @param historicalCTR The historical CTR data
-     * @param days          The number of days to predict
-     * @return A map of dates to predicted CTR values
+     * @param storeIds The stores to train models for
+     * @param onModel  Receives each trained model on the calling thread, in the order they finish
      */
-    private Map<String, Double> predictUsingSimpleRegression(Map<LocalDate, Double> historicalCTR, int days) {
-        try {
-            // Convert historical data to Weka instances for simple regression
-            Instances trainingData = prepareTrainingDataForRegression(historicalCTR);
+    public void trainModels(List<Integer> storeIds, Consumer<CTRForecastModel> onModel) {
+        for (int from = 0; from < storeIds.size(); from += BATCH_QUERY_SIZE) {
+            List<Integer> chunk = storeIds.subList(from, Math.min(from + BATCH_QUERY_SIZE, storeIds.size()));
+            Map<Integer, DailyCTRSeries.Builder> historyByStore = new HashMap<>();
+            loadDailyActivity(chunk, historyByStore, new HashMap<>());
             
-            // Train the linear regression model
-            LinearRegression regression = new LinearRegression();
-            regression.buildClassifier(trainingData);
-            
-            // Make predictions for future days
-            Map<String, Double> predictions = new HashMap<>();
-            LocalDate currentDate = LocalDate.now();
-            
-            for (int i = 1; i <= days; i++) {
-                LocalDate forecastDate = currentDate.plusDays(i);
-                
-                // Create test instance
-                Instance testInstance = new DenseInstance(2);
-                testInstance.setValue(0, i); // Day offset
-                
-                // Set dataset for the instance
-                testInstance.setDataset(trainingData);
-                
-                // Make prediction
-                double predictedCTR = regression.classifyInstance(testInstance);
-                
-                // Ensure CTR is between 0 and 1
-                predictedCTR = Math.max(0, Math.min(1, predictedCTR));
-                
-                predictions.put(forecastDate.format(DATE_FORMATTER), predictedCTR);
+            List<Callable<CTRForecastModel>> tasks = new ArrayList<>();
+            for (Integer storeId : chunk) {
+                DailyCTRSeries historicalCTR = build(historyByStore.get(storeId));
+                tasks.add(() -> trainModel(storeId, historicalCTR));
             }
-            
-            return predictions;
-        } catch (Exception e) {
-            logger.error("Error using simple regression for prediction", e);
-            return generateFallbackPredictions(historicalCTR, days);
+            runOnForecastPool(tasks, model -> {
+                forecastModelCache.replaceIfPresent(model);
+                onModel.accept(model);
+            });
         }
     }
 
     /**
-     * Prepares Weka instances from historical CTR data for training the forecaster.
+     * Loads the daily CTR history of many stores with one grouped query per {@value #BATCH_QUERY_SIZE} stores
      *
-     * @param historicalCTR The historical CTR data
-     * @return Weka instances for training
+     * @param storeIds The stores to load
+     * @return The daily CTR series by store ID; stores without sends get an empty series
      */
-    private Instances prepareTrainingData(Map<LocalDate, Double> historicalCTR) {
-        // Define attributes for the dataset
-        ArrayList<Attribute> attributes = new ArrayList<>();
-        // Create string attribute for date with ArrayList of possible values
-        ArrayList<String> dateValues = new ArrayList<>();
-        historicalCTR.keySet().stream()
-                .sorted()
-                .forEach(date -> dateValues.add(date.format(DATE_FORMATTER)));
-        
-        Attribute dateAttr = new Attribute("date", dateValues);
-        attributes.add(dateAttr);
-        attributes.add(new Attribute("ctr"));
-        
-        // Create dataset with attributes
-        Instances dataset = new Instances("CTRData", attributes, historicalCTR.size());
-        dataset.setClass(attributes.get(1)); // Set CTR as the class attribute
-        
-        // Add instances to the dataset
-        List<LocalDate> sortedDates = historicalCTR.keySet().stream()
-                .sorted()
-                .collect(Collectors.toList());
-        
-        for (LocalDate date : sortedDates) {
-            double ctr = historicalCTR.get(date);
-            
-            // Create instance with proper dataset reference
-            Instance instance = new DenseInstance(2);
-            // Set dataset first
-            instance.setDataset(dataset);
-            // Then set values
-            instance.setValue(0, date.format(DATE_FORMATTER));
-            instance.setValue(1, ctr);
+    public Map<Integer, DailyCTRSeries> getHistoricalCTR(List<Integer> storeIds) {
+        Map<Integer, DailyCTRSeries.Builder> historyByStore = new HashMap<>();
+        for (int from = 0; from < storeIds.size(); from += BATCH_QUERY_SIZE) {
+            List<Integer> chunk = storeIds.subList(from, Math.min(from + BATCH_QUERY_SIZE, storeIds.size()));
+            loadDailyActivity(chunk, historyByStore, new HashMap<>());
+        }
+        Map<Integer, DailyCTRSeries> history = new HashMap<>();
+        for (Integer storeId : storeIds) {
+            history.put(storeId, build(historyByStore.get(storeId)));
+        }
+        return history;
+    }
+
+    /**
+     * Loads the daily CTR history and all-time totals of several stores with one grouped query
+     */
+    private void loadDailyActivity(List<Integer> storeIds, Map<Integer, DailyCTRSeries.Builder> historyByStore,
+                                   Map<Integer, long[]> totalsByStore) {
+        for (Object[] row : dailyStatsRepository.findDailyActivityByStores(storeIds)) {
+            Integer storeId = (Integer) row[0];
+            long messages = ((Number) row[2]).longValue();
+            long clicks = ((Number) row[3]).longValue();
             
-            dataset.add(instance);
+            historyByStore.computeIfAbsent(storeId, id -> new DailyCTRSeries.Builder())
+                    .add(toLocalDate(row[1]), messages, clicks);
+            long[] totals = totalsByStore.computeIfAbsent(storeId, id -> new long[2]);
+            totals[0] += messages;
+            totals[1] += clicks;
+        }
+    }
+
+    private static DailyCTRSeries build(DailyCTRSeries.Builder builder) {
+        return builder != null ? builder.build() : DailyCTRSeries.empty();
+    }
+
+    /**
+     * Runs the tasks on the forecast pool and hands each result to the consumer on the calling thread
+     */
+    private <T> void runOnForecastPool(List<Callable<T>> tasks, Consumer<T> onResult) {
+        CompletionService<T> completion = new ExecutorCompletionService<>(forecastPool);
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            futures.add(completion.submit(task));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                onResult.accept(completion.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch prediction interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch prediction failed", e.getCause());
+        } finally {
+            // Stops remaining work when the consumer fails, e.g. because the client went away
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private CTRPredictionDTO predictFromHistory(Store store, int days, DailyCTRSeries historicalCTR, long[] totals) {
+        Map<String, Double> predictions;
+        try {
+            CTRForecastModel model = forecastModelCache.get(store.getId(), id -> trainModel(id, historicalCTR));
+            predictions = toPredictions(model.forecastFrom(LocalDate.now(), days));
+        } catch (Exception e) {
+            logger.error("Error making CTR predictions for store {}", store.getId(), e);
+            predictions = toPredictions(averageForecast(historicalCTR, days));
         }
         
-        return dataset;
+        CTRPredictionDTO prediction = new CTRPredictionDTO();
+        prediction.setStoreId(store.getId().longValue());
+        prediction.setStoreName(store.getName());
+        prediction.setPredictions(predictions);
+        prediction.setCurrentCTR(totals[0] > 0 ? (double) totals[1] / totals[0] : 0.0);
+        prediction.updateCalculatedFields();
+        return prediction;
+    }
+
+    /**
+     * Retrains every cached model so forecasts include the day that just ended
+     */
+    @Scheduled(cron = "${analytics.forecast.model.retrain-cron:0 15 0 * * *}")
+    public void retrainCachedModels() {
+        Set<Integer> storeIds = forecastModelCache.getStoreIds();
+        logger.info("Retraining {} cached forecast models", storeIds.size());
+        for (Integer storeId : storeIds) {
+            try {
+                forecastModelCache.retrain(storeId, this::trainModel);
+            } catch (Exception e) {
+                logger.warn("Could not retrain forecast model for store {}: {}", storeId, e.getMessage());
+            }
+        }
     }
 
     /**
-     * Prepares Weka instances from historical CTR data for simple regression.
-     * Uses day offset as feature instead of date string.
+     * Trains a store's model with the default engine and forecasts the full horizon with it.
+     * Falls back to the average CTR when there is too little history or the engine fails.
      *
-     * @param historicalCTR The historical CTR data
-     * @return Weka instances for training simple regression
+     * @param storeId The ID of the store
+     * @return The trained model
      */
-    private Instances prepareTrainingDataForRegression(Map<LocalDate, Double> historicalCTR) {
-        // Define attributes for the dataset
-        ArrayList<Attribute> attributes = new ArrayList<>();
-        attributes.add(new Attribute("day_offset"));
-        attributes.add(new Attribute("ctr"));
-        
-        // Create dataset with attributes
-        Instances dataset = new Instances("CTRRegressionData", attributes, historicalCTR.size());
-        dataset.setClass(attributes.get(1)); // Set CTR as the class attribute
-        
-        // Sort dates
-        List<LocalDate> sortedDates = historicalCTR.keySet().stream()
-                .sorted()
-                .collect(Collectors.toList());
-        
-        // Find earliest date to calculate offsets
-        if (sortedDates.isEmpty()) {
-            return dataset;
+    CTRForecastModel trainModel(Integer storeId) {
+        // Get historical CTR data
+        return trainModel(storeId, getHistoricalCTR(storeId));
+    }
+
+    /**
+     * Trains a model with the default engine on a history that was already loaded
+     *
+     * @param storeId       The store the history belongs to
+     * @param historicalCTR The daily CTR history, e.g. of the whole store or one of its templates
+     * @return The trained model
+     */
+    CTRForecastModel trainModel(Integer storeId, DailyCTRSeries historicalCTR) {
+        return trainModel(storeId, historicalCTR, MODEL_HORIZON_DAYS);
+    }
+
+    /**
+     * Trains a model with the default engine that only forecasts the given number of days, for
+     * forecasts that are used once and not cached
+     *
+     * @param storeId       The store the history belongs to
+     * @param historicalCTR The daily CTR history, e.g. of the whole store or one of its templates
+     * @param horizon       The number of days to forecast
+     * @return The trained model
+     */
+    CTRForecastModel trainModel(Integer storeId, DailyCTRSeries historicalCTR, int horizon) {
+        return trainModel(storeId, historicalCTR, forecastingEngines.getDefault(), horizon);
+    }
+
+    private CTRForecastModel trainModel(Integer storeId, DailyCTRSeries historicalCTR, ForecastingEngine engine, int horizon) {
+        LocalDate lastDataDate = historicalCTR.getEnd();
+
+        if (historicalCTR.getObservedDays() < 7) {
+            // Need at least 7 days of data for a reasonable forecast
+            logger.warn("Not enough historical data for store {}: {} days available", storeId, historicalCTR.getObservedDays());
+            return new CTRForecastModel(storeId, "average", averageForecast(historicalCTR, horizon), lastDataDate);
         }
-        
-        LocalDate earliestDate = sortedDates.get(0);
-        
-        // Add instances to the dataset
-        for (LocalDate date : sortedDates) {
-            double ctr = historicalCTR.get(date);
-            int dayOffset = (int) (date.toEpochDay() - earliestDate.toEpochDay());
-            
-            // Create instance with proper dataset reference
-            Instance instance = new DenseInstance(2);
-            // Set dataset first
-            instance.setDataset(dataset);
-            // Then set values
-            instance.setValue(0, dayOffset);
-            instance.setValue(1, ctr);
-            
-            dataset.add(instance);
+
+        try {
+            double[] forecast = engine.forecast(historicalCTR, horizon);
+            return new CTRForecastModel(storeId, engine.getName(), forecast, lastDataDate);
+        } catch (Exception e) {
+            logger.error("Error using {} forecasting for prediction", engine.getName(), e);
+            return new CTRForecastModel(storeId, "average", averageForecast(historicalCTR, horizon), lastDataDate);
         }
-        
-        return dataset;
     }
 
     /**
      * Gets historical click-through rate data for a given store.
      *
      * @param storeId The ID of the store
-     * @return A map of dates to CTR values
+     * @return The daily CTR series
      */
-    private Map<LocalDate, Double> getHistoricalCTR(Long storeId) {
-        // Get sent messages grouped by date
-        Integer storeIdInt = storeId.intValue();
-        Map<LocalDate, Long> messagesByDate = sentTextMessageRepository.findByStore_Id(storeIdInt).stream()
-                .collect(Collectors.groupingBy(
-                        msg -> msg.getSentAt().toLocalDate(),
-                        Collectors.counting()
-                ));
-        
-        // Get clicks grouped by date
-        Map<LocalDate, Long> clicksByDate = linkClickRepository.findByStoreId(storeIdInt).stream()
-                .collect(Collectors.groupingBy(
-                        click -> click.getClickedAt().toLocalDate(),
-                        Collectors.counting()
-                ));
-        
-        // Calculate CTR for each date
-        Map<LocalDate, Double> ctrByDate = new HashMap<>();
-        for (Map.Entry<LocalDate, Long> entry : messagesByDate.entrySet()) {
-            LocalDate date = entry.getKey();
-            long messages = entry.getValue();
-            long clicks = clicksByDate.getOrDefault(date, 0L);
-            
-            if (messages > 0) {
-                double ctr = (double) clicks / messages;
-                ctrByDate.put(date, ctr);
-            }
+    private DailyCTRSeries getHistoricalCTR(Integer storeId) {
+        // Sends and clicks are already grouped by day in the database, so memory use
+        // depends on the number of days rather than the number of messages
+        DailyCTRSeries.Builder history = new DailyCTRSeries.Builder();
+        for (Object[] row : dailyStatsRepository.findDailyActivityByStore(storeId)) {
+            history.add(toLocalDate(row[0]), ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
         }
-        
-        return ctrByDate;
+        return history.build();
+    }
+
+    private void loadHistory(Integer storeId, OnlineCTRRegression model) {
+        for (Object[] row : dailyStatsRepository.findDailyActivityByStore(storeId)) {
+            model.add(toLocalDate(row[0]), ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        return ((Date) value).toLocalDate();
     }
 
     /**
      * Generates fallback predictions when there's not enough historical data.
-     * Uses a simple average or linear extrapolation based on available data.
+     * Uses the average of the available data.
      *
      * @param historicalCTR The historical CTR data
      * @param days          The number of days to predict
-     * @return A map of dates to predicted CTR values
+     * @return The average CTR for every day
      */
-    private Map<String, Double> generateFallbackPredictions(Map<LocalDate, Double> historicalCTR, int days) {
-        double averageCTR = historicalCTR.values().stream()
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.05); // Default to 5% if no data available
+    private double[] averageForecast(DailyCTRSeries historicalCTR, int days) {
+        double averageCTR = historicalCTR.average(0.05); // Default to 5% if no data available
         
+        double[] predictions = new double[days];
+        Arrays.fill(predictions, averageCTR);
+        return predictions;
+    }
+
+    /**
+     * Keys a forecast by date, starting tomorrow
+     *
+     * @param forecast Predicted CTR per day, day 1 first
+     * @return A map of dates to predicted CTR values
+     */
+    static Map<String, Double> toPredictions(double[] forecast) {
         Map<String, Double> predictions = new HashMap<>();
         LocalDate currentDate = LocalDate.now();
         
-        for (int i = 1; i <= days; i++) {
-            LocalDate forecastDate = currentDate.plusDays(i);
-            predictions.put(forecastDate.format(DATE_FORMATTER), averageCTR);
+        for (int i = 0; i < forecast.length; i++) {
+            if (Double.isNaN(forecast[i])) {
+                continue;
+            }
+            // Ensure CTR is between 0 and 1
+            double predictedCTR = Math.max(0, Math.min(1, forecast[i]));
+            predictions.put(currentDate.plusDays(i + 1).format(DATE_FORMATTER), predictedCTR);
         }
         
         return predictions;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package org.example.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Drops clicks that should not be counted before they are queued for the database: clicks
+ * from link preview bots and crawlers, recognised by their user agent, and repeats of a click
+ * on the same message from the same client within the duplicate window.
+ * <p>
+ * Repeats are found with two Bloom filters that each cover half the window: clicks are added
+ * to the current one and looked up in both, and every half window the older one is dropped.
+ * A click is therefore remembered for between half and the whole window, in constant space.
+ * A false positive drops a first click. Once a filter holds the expected number of clicks this
+ * happens at the configured rate, or up to twice that while both filters are full.
+ */
+@Component
+public class ClickFilter {
+    /**
+     * Lower-case user agent fragments of link previewers, crawlers and HTTP libraries
+     */
+    private static final List<String> BOT_AGENTS = List.of(
+            "crawler", "spider", "preview", "facebookexternalhit", "whatsapp", "slack", "skypeuripreview",
+            "bitlyextension", "embedly", "vkshare", "pinterest", "quora link", "headlesschrome", "lighthouse",
+            "curl/", "wget/", "python-requests", "python-urllib", "java/", "okhttp", "go-http-client",
+            "apache-httpclient", "libwww-perl", "node-fetch", "axios/");
+    /**
+     * Names ending in "bot" as crawlers use them (Googlebot/2.1, TwitterBot), but not phone
+     * models that merely contain it, such as CUBOT
+     */
+    private static final Pattern BOT_NAME = Pattern.compile("(?<!cu)bot(?:[/;)\\s-]|$)");
+
+    public enum Verdict {
+        ACCEPTED, DUPLICATE, BOT
+    }
+
+    private final Clock clock;
+    private final long halfWindowMillis;
+    private final int bits;
+    private final int hashes;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder bots = new LongAdder();
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long generation;
+
+    @Autowired
+    public ClickFilter(@Value("${tracking.click.filter.window:10m}") Duration window,
+                       @Value("${tracking.click.filter.expected-clicks:1000000}") long expectedClicks,
+                       @Value("${tracking.click.filter.false-positive-rate:0.001}") double falsePositiveRate) {
+        this(window, expectedClicks, falsePositiveRate, Clock.systemUTC());
+    }
+
+    ClickFilter(Duration window, long expectedClicks, double falsePositiveRate, Clock clock) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1), got " + falsePositiveRate);
+        }
+        this.clock = clock;
+        this.halfWindowMillis = Math.max(1, window.toMillis() / 2);
+        // Optimal size and number of hash functions for n elements at rate p
+        long optimalBits = (long) Math.ceil(-Math.max(1, expectedClicks) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(Long.SIZE, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / Math.max(1, expectedClicks) * Math.log(2)));
+        this.generation = clock.millis() / halfWindowMillis;
+        this.current = new BloomFilter(bits);
+        this.previous = new BloomFilter(bits);
+    }
+
+    /**
+     * Decides whether a click is counted, and remembers it when it is
+     * @param messageId The clicked message
+     * @param userAgent User-Agent header of the request, may be null
+     * @param clientAddress Address of the client, may be null
+     * @return ACCEPTED when the click should be recorded
+     */
+    public Verdict check(Integer messageId, String userAgent, String clientAddress) {
+        if (isBot(userAgent)) {
+            bots.increment();
+            return Verdict.BOT;
+        }
+        rotateIfDue();
+        long hash = hash(messageId, userAgent, clientAddress);
+        BloomFilter filter = current;
+        boolean seen = previous.mightContain(hash);
+        if (filter.put(hash) || seen) {
+            duplicates.increment();
+            return Verdict.DUPLICATE;
+        }
+        accepted.increment();
+        return Verdict.ACCEPTED;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("accepted", accepted.sum());
+        result.put("duplicates", duplicates.sum());
+        result.put("bots", bots.sum());
+        result.put("filterBits", bits);
+        result.put("hashFunctions", hashes);
+        return result;
+    }
+
+    static boolean isBot(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return false; // Some SMS apps send none; counting them is the lesser error
+        }
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        if (BOT_NAME.matcher(agent).find()) {
+            return true;
+        }
+        for (String fragment : BOT_AGENTS) {
+            if (agent.contains(fragment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rotateIfDue() {
+        long now = clock.millis() / halfWindowMillis;
+        if (now == generation) {
+            return;
+        }
+        synchronized (this) {
+            if (now == generation) {
+                return;
+            }
+            previous = now - generation == 1 ? current : new BloomFilter(bits);
+            current = new BloomFilter(bits);
+            generation = now;
+        }
+    }
+
+    private static long hash(Integer messageId, String userAgent, String clientAddress) {
+        long hash = mix(messageId);
+        hash = mix(hash ^ (userAgent != null ? userAgent.hashCode() : 0));
+        return mix(hash ^ (clientAddress != null ? clientAddress.hashCode() : 0));
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads every input bit over the whole hash
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Bloom filter over 64-bit hashes with lock-free inserts. Bit positions come from the two
+     * halves of the hash by double hashing.
+     */
+    private final class BloomFilter {
+        private final AtomicLongArray words;
+
+        BloomFilter(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return True when every bit of the hash was set already, i.e. it might have been added before
+         */
+        boolean put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean present = true;
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                int index = bit >>> 6;
+                long word = words.get(index);
+                if ((word & mask) == 0) {
+                    present = false;
+                    while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                        word = words.get(index);
+                    }
+                }
+            }
+            return present;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of clicks in memory-mapped segment files. A click is appended before
+ * its redirect is answered and stays in the journal until the batch it was written in has
+ * committed, so clicks survive a slow or unavailable database and a restart of the process.
+ * <p>
+ * Records have a fixed size and are addressed by a position that counts records from the
+ * start of the journal; a segment holds a fixed number of them and is named after its index.
+ * Each record's CRC covers its position as well as its data, so a stale record left in a slot
+ * by an earlier use of the file is not taken for a new one. A checkpoint file keeps the
+ * position up to which records are committed. On startup the records after the checkpoint are
+ * read again, and the end of the journal is the first record of the last segment whose CRC
+ * does not match. Segments before the checkpoint are deleted. Writes reach the page cache right
+ * away and disk when {@link #force()} is called.
+ * <p>
+ * Records are committed after the database transaction that wrote them, so records written
+ * just before a crash are read and written again after the restart: delivery is at least once.
+ * <p>
+ * One writer thread reads and commits; any number of threads append.
+ */
+@Component
+public class ClickJournal {
+    private static final Logger logger = LoggerFactory.getLogger(ClickJournal.class);
+    private static final int RECORD_SIZE = 32;
+    private static final int CRC_OFFSET = 28;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final long recordsPerSegment;
+    private final int maxSegments;
+    private final NavigableMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer checkpoint;
+    private volatile long writePosition;
+    private volatile long committedPosition;
+
+    public ClickJournal(@Value("${tracking.click.journal.dir:}") String directory,
+                        @Value("${tracking.click.journal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${tracking.click.journal.max-segments:64}") int maxSegments) throws IOException {
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.recordsPerSegment = Math.max(1, segmentSize.toBytes() / RECORD_SIZE);
+        this.maxSegments = Math.max(2, maxSegments);
+        if (this.directory != null) {
+            open();
+        }
+    }
+
+    /**
+     * @return False when no journal directory is configured
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Appends a click to the end of the journal
+     * @param click The click
+     * @return False when the journal already has its maximum number of segments or cannot
+     *         add a segment
+     */
+    public synchronized boolean append(TrackedClick click) {
+        long position = writePosition;
+        long segment = position / recordsPerSegment;
+        MappedByteBuffer buffer = segments.get(segment);
+        if (buffer == null) {
+            if (segment - committedPosition / recordsPerSegment + 1 > maxSegments) {
+                return false;
+            }
+            try {
+                buffer = map(segment);
+            } catch (UncheckedIOException e) {
+                logger.warn("Could not add a click journal segment: {}", e.getMessage());
+                return false;
+            }
+        }
+        encode(click, position);
+        buffer.put((int) (position % recordsPerSegment) * RECORD_SIZE, record);
+        writePosition = position + 1;
+        return true;
+    }
+
+    /**
+     * Reads the oldest records that are not committed yet
+     * @param max Maximum number of records to read
+     * @return Up to max clicks, oldest first; the same clicks are returned until they are committed
+     */
+    public List<TrackedClick> read(int max) {
+        long from = committedPosition;
+        long to = Math.min(writePosition, from + max);
+        List<TrackedClick> clicks = new ArrayList<>((int) (to - from));
+        for (long position = from; position < to; position++) {
+            ByteBuffer buffer = segments.get(position / recordsPerSegment);
+            clicks.add(decode(buffer, (int) (position % recordsPerSegment) * RECORD_SIZE));
+        }
+        return clicks;
+    }
+
+    /**
+     * Marks the oldest records as written to the database and deletes segments that hold no
+     * uncommitted records anymore
+     * @param count Number of records read with {@link #read(int)} that have been committed
+     */
+    public void commit(int count) {
+        long position = Math.min(writePosition, committedPosition + count);
+        checkpoint.putLong(0, position);
+        committedPosition = position;
+        long firstNeeded = position / recordsPerSegment;
+        for (Long segment : new ArrayList<>(segments.headMap(firstNeeded).keySet())) {
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segmentPath(segment));
+            } catch (IOException e) {
+                logger.warn("Could not delete click journal segment {}: {}", segment, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes appended records and the checkpoint through to disk
+     */
+    @PreDestroy
+    public void force() {
+        if (!isEnabled()) {
+            return;
+        }
+        segments.values().forEach(MappedByteBuffer::force);
+        checkpoint.force();
+    }
+
+    /**
+     * @return Number of clicks appended but not committed yet
+     */
+    public long getPending() {
+        return writePosition - committedPosition;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", isEnabled());
+        result.put("pending", getPending());
+        result.put("segments", segments.size());
+        return result;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    map(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+
+        long committed = checkpoint.getLong(0);
+        if (segments.isEmpty()) {
+            writePosition = committed;
+            committedPosition = committed;
+            return;
+        }
+        long last = segments.lastKey();
+        ByteBuffer buffer = segments.get(last);
+        long end = 0;
+        while (end < recordsPerSegment && isValid(buffer, (int) end * RECORD_SIZE, last * recordsPerSegment + end)) {
+            end++;
+        }
+        writePosition = last * recordsPerSegment + end;
+        committedPosition = Math.min(writePosition, Math.max(committed, segments.firstKey() * recordsPerSegment));
+        if (getPending() > 0) {
+            logger.info("Click journal has {} clicks that were not written to the database yet", getPending());
+        }
+        commit(0);
+    }
+
+    private MappedByteBuffer map(long segment) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsPerSegment * RECORD_SIZE);
+            segments.put(segment, buffer);
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map click journal segment " + segment, e);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private void encode(TrackedClick click, long position) {
+        TrackingLink link = click.getLink();
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(0, link.getMessageId());
+        buffer.putInt(4, link.getStoreId() != null ? link.getStoreId() : 0);
+        buffer.putInt(8, link.getTemplateId() != null ? link.getTemplateId() : 0);
+        buffer.putLong(12, toMillis(link.getSentAt()));
+        buffer.putLong(20, toMillis(click.getClickedAt()));
+        crc.reset();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+        crc.update(record, 0, CRC_OFFSET);
+        buffer.putInt(CRC_OFFSET, (int) crc.getValue());
+    }
+
+    private static TrackedClick decode(ByteBuffer buffer, int offset) {
+        int storeId = buffer.getInt(offset + 4);
+        int templateId = buffer.getInt(offset + 8);
+        TrackingLink link = new TrackingLink(buffer.getInt(offset),
+                storeId != 0 ? storeId : null,
+                templateId != 0 ? templateId : null,
+                toDateTime(buffer.getLong(offset + 12)),
+                null);
+        return new TrackedClick(link, toDateTime(buffer.getLong(offset + 20)));
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int offset, long position) {
+        CRC32 checksum = new CRC32();
+        checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+        checksum.update(buffer.slice(offset, CRC_OFFSET));
+        return buffer.getInt(offset + CRC_OFFSET) == (int) checksum.getValue();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_TIME;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return millis != NO_TIME ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.repository.SentTextMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Handles clicks on tracking links. Codes are decoded and checked by {@link TrackingCodes}
+ * without touching the database, so forged or mistyped codes are turned away in CPU. The
+ * destination of a valid code is looked up once per message and kept in a bounded cache. Bot
+ * and repeated clicks are dropped by the {@link ClickFilter}; the rest are handed to the
+ * {@link LinkClickWriter} so a redirect never waits for a write.
+ */
+@Service
+public class ClickTrackingService {
+    private static final Logger logger = LoggerFactory.getLogger(ClickTrackingService.class);
+
+    private final SentTextMessageRepository sentTextMessageRepository;
+    private final LinkClickWriter linkClickWriter;
+    private final TrackingCodes trackingCodes;
+    private final ClickFilter clickFilter;
+    private final Cache<Integer, TrackingLink> links;
+
+    public ClickTrackingService(SentTextMessageRepository sentTextMessageRepository,
+                                LinkClickWriter linkClickWriter,
+                                TrackingCodes trackingCodes,
+                                ClickFilter clickFilter,
+                                @Value("${tracking.link.cache.maximum-size:100000}") long maximumSize) {
+        this.sentTextMessageRepository = sentTextMessageRepository;
+        this.linkClickWriter = linkClickWriter;
+        this.trackingCodes = trackingCodes;
+        this.clickFilter = clickFilter;
+        this.links = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Records a click on a tracking link unless it comes from a bot or repeats a recent click
+     * @param code The tracking code from the link
+     * @param userAgent User-Agent header of the request, may be null
+     * @param clientAddress Address of the client, may be null
+     * @return Where to redirect the click, or null when the code is unknown
+     */
+    public URI click(String code, String userAgent, String clientAddress) {
+        TrackingCodes.Code decoded = trackingCodes.decode(code);
+        if (decoded == null) {
+            return null;
+        }
+        TrackingLink link = links.get(decoded.getMessageId(), this::load);
+        if (link == null || !Objects.equals(link.getStoreId(), decoded.getStoreId())) {
+            return null;
+        }
+        if (clickFilter.check(link.getMessageId(), userAgent, clientAddress) == ClickFilter.Verdict.ACCEPTED) {
+            linkClickWriter.enqueue(new TrackedClick(link, LocalDateTime.now()));
+        }
+        return link.getDestination();
+    }
+
+    /**
+     * @param messageId The message ID
+     * @param storeId The store that sent the message, or null
+     * @return The path of the message's tracking link
+     */
+    public String trackingPath(Integer messageId, Integer storeId) {
+        return "/t/" + trackingCodes.encode(messageId, storeId);
+    }
+
+    private TrackingLink load(Integer messageId) {
+        List<Object[]> rows = sentTextMessageRepository.findTrackingLink(messageId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        URI destination = toDestination((String) row[4]);
+        if (destination == null) {
+            logger.debug("Message {} has no valid tracking link", messageId);
+            return null;
+        }
+        return new TrackingLink(messageId, toInteger(row[1]), toInteger(row[2]), toDateTime(row[3]), destination);
+    }
+
+    /**
+     * Tracking links are stored as entered; links without a scheme are taken to be https
+     */
+    static URI toDestination(String trackingLink) {
+        if (trackingLink == null || trackingLink.isBlank()) {
+            return null;
+        }
+        String link = trackingLink.trim();
+        try {
+            URI uri = URI.create(link.contains("://") ? link : "https://" + link);
+            String scheme = uri.getScheme().toLowerCase();
+            if (!scheme.equals("http") && !scheme.equals("https") || uri.getHost() == null) {
+                return null;
+            }
+            return uri;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof LocalDateTime ? (LocalDateTime) value : ((Timestamp) value).toLocalDateTime();
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A store's daily CTR history as one dense array, oldest day first. Days without sends
+ * hold NaN, so engines see the gaps without a map of boxed dates and values.
+ */
+public final class DailyCTRSeries {
+    private static final DailyCTRSeries EMPTY = new DailyCTRSeries(null, new double[0], 0);
+
+    private final LocalDate start;
+    private final double[] values;
+    private final int observedDays;
+
+    private DailyCTRSeries(LocalDate start, double[] values, int observedDays) {
+        this.start = start;
+        this.values = values;
+        this.observedDays = observedDays;
+    }
+
+    public static DailyCTRSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return The first day of the series, or null when it is empty
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * @return The last day of the series, which always has a value, or null when it is empty
+     */
+    public LocalDate getEnd() {
+        return start == null ? null : start.plusDays(values.length - 1L);
+    }
+
+    /**
+     * @return CTR per day from the start; shared, so callers must not modify it
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return Number of days with sends, i.e. values that are not NaN
+     */
+    public int getObservedDays() {
+        return observedDays;
+    }
+
+    /**
+     * @param fallback Returned when the series has no observed days
+     * @return Mean CTR of the observed days
+     */
+    public double average(double fallback) {
+        if (observedDays == 0) {
+            return fallback;
+        }
+        double sum = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        return sum / observedDays;
+    }
+
+    /**
+     * The series up to a day, e.g. to train on the past of a backtest origin
+     * @param days Number of days from the start to keep
+     * @return The first days of the series, without trailing days that have no sends
+     */
+    public DailyCTRSeries prefix(int days) {
+        int end = Math.min(days, values.length);
+        while (end > 0 && Double.isNaN(values[end - 1])) {
+            end--;
+        }
+        if (end == values.length) {
+            return this;
+        }
+        if (end == 0) {
+            return EMPTY;
+        }
+        int observed = 0;
+        for (int i = 0; i < end; i++) {
+            if (!Double.isNaN(values[i])) {
+                observed++;
+            }
+        }
+        return new DailyCTRSeries(start, Arrays.copyOf(values, end), observed);
+    }
+
+    /**
+     * Collects daily rows in any order; days without sends are left out
+     */
+    public static final class Builder {
+        private long[] days = new long[64];
+        private double[] ctr = new double[64];
+        private int count;
+
+        public Builder add(LocalDate date, long messages, long clicks) {
+            if (messages <= 0) {
+                return this;
+            }
+            if (count == days.length) {
+                days = Arrays.copyOf(days, count * 2);
+                ctr = Arrays.copyOf(ctr, count * 2);
+            }
+            days[count] = date.toEpochDay();
+            ctr[count] = (double) clicks / messages;
+            count++;
+            return this;
+        }
+
+        public DailyCTRSeries build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                first = Math.min(first, days[i]);
+                last = Math.max(last, days[i]);
+            }
+            
+            double[] values = new double[(int) (last - first + 1)];
+            Arrays.fill(values, Double.NaN);
+            int observed = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (int) (days[i] - first);
+                if (Double.isNaN(values[index])) {
+                    observed++;
+                }
+                values[index] = ctr[i];
+            }
+            return new DailyCTRSeries(LocalDate.ofEpochDay(first), values, observed);
+        }
+    }
+}
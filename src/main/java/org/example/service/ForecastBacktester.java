@@ -0,0 +1,229 @@
+package org.example.service;
+
+import org.example.dto.BacktestReportDTO;
+import org.example.dto.ModelBacktestDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * Rolling-origin backtests of the forecasting models. Each store's history is cut at origins
+ * {@code step} days apart; at every origin each model is trained on the days before it, as
+ * production does for the full {@value CTRPredictionService#MODEL_HORIZON_DAYS}-day horizon, and
+ * its first {@code horizon} days are compared with what was observed. Stores are replayed in
+ * parallel on the forecast pool, so timings include some contention with each other.
+ * <p>
+ * Besides the registered engines, the two stages of the Weka engine and the average fallback
+ * are measured on their own, so the cost of each fallback step is visible.
+ * <p>
+ * The number of model fits, stores × origins × models, is capped by
+ * analytics.forecast.backtest.max-fits; larger backtests are rejected before any model is
+ * trained.
+ */
+@Service
+public class ForecastBacktester {
+    public static final String AVERAGE = "average";
+    public static final String WEKA_TIME_SERIES = "weka-time-series";
+    public static final String WEKA_REGRESSION = "weka-regression";
+
+    private final CTRPredictionService ctrPredictionService;
+    private final ExecutorService forecastPool;
+    private final long maxFits;
+    private final Map<String, BiFunction<DailyCTRSeries, Integer, double[]>> models = new LinkedHashMap<>();
+
+    public ForecastBacktester(CTRPredictionService ctrPredictionService,
+                              ForecastingEngines forecastingEngines,
+                              WekaForecastingEngine wekaForecastingEngine,
+                              ExecutorService forecastPool,
+                              @Value("${analytics.forecast.backtest.max-fits:5000}") long maxFits) {
+        this.ctrPredictionService = ctrPredictionService;
+        this.forecastPool = forecastPool;
+        this.maxFits = maxFits;
+        models.put(AVERAGE, (history, days) -> {
+            double[] forecast = new double[days];
+            Arrays.fill(forecast, history.average(0.05));
+            return forecast;
+        });
+        models.put(WEKA_TIME_SERIES, wekaForecastingEngine::forecastUsingTimeSeries);
+        models.put(WEKA_REGRESSION, (history, days) -> {
+            try {
+                return wekaForecastingEngine.forecastUsingSimpleRegression(history, days);
+            } catch (Exception e) {
+                throw new RuntimeException("Simple regression failed", e);
+            }
+        });
+        for (String name : forecastingEngines.getNames()) {
+            ForecastingEngine engine = forecastingEngines.get(name);
+            models.put(name, engine::forecast);
+        }
+    }
+
+    /**
+     * @return Names of the models that can be backtested
+     */
+    public List<String> getModelNames() {
+        return new ArrayList<>(models.keySet());
+    }
+
+    /**
+     * Backtests models on the history of the given stores
+     *
+     * @param storeIds        The stores to replay
+     * @param modelNames      The models to compare, or null for all
+     * @param horizon         Days forecast from each origin
+     * @param step            Days between origins
+     * @param minTrainingDays Days of history before the first origin
+     * @return Accuracy and cost per model
+     * @throws IllegalArgumentException if a model name is unknown or the backtest would fit
+     *                                  more models than allowed
+     */
+    public BacktestReportDTO backtest(List<Integer> storeIds, List<String> modelNames,
+                                      int horizon, int step, int minTrainingDays) {
+        Map<String, BiFunction<DailyCTRSeries, Integer, double[]>> selected = new LinkedHashMap<>();
+        for (String name : modelNames != null ? modelNames : getModelNames()) {
+            if (!models.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown model: " + name + ", available: " + models.keySet());
+            }
+            selected.put(name, models.get(name));
+        }
+        if (step < 1) {
+            throw new IllegalArgumentException("Step must be at least one day, got " + step);
+        }
+        // Every store needs its history loaded, so reject what cannot fit before loading any
+        if ((long) storeIds.size() * selected.size() > maxFits) {
+            throw new IllegalArgumentException("Backtest of " + storeIds.size() + " stores and " + selected.size()
+                    + " models exceeds " + maxFits + " model fits");
+        }
+
+        Map<Integer, DailyCTRSeries> histories = ctrPredictionService.getHistoricalCTR(storeIds);
+        long fits = 0;
+        for (Integer storeId : storeIds) {
+            DailyCTRSeries history = histories.get(storeId);
+            int days = history != null ? history.getValues().length : 0;
+            fits += days > minTrainingDays ? ((long) days - minTrainingDays + step - 1) / step * selected.size() : 0;
+        }
+        if (fits > maxFits) {
+            throw new IllegalArgumentException("Backtest needs " + fits + " model fits, at most " + maxFits
+                    + " are allowed; use fewer stores or models or a longer step");
+        }
+        CompletionService<Map<String, Accumulator>> completion = new ExecutorCompletionService<>(forecastPool);
+        List<Future<Map<String, Accumulator>>> futures = new ArrayList<>();
+        for (Integer storeId : storeIds) {
+            DailyCTRSeries history = histories.get(storeId);
+            futures.add(completion.submit(() -> replay(storeId, history, selected, horizon, step, minTrainingDays)));
+        }
+
+        Map<String, Accumulator> totals = new LinkedHashMap<>();
+        selected.keySet().forEach(name -> totals.put(name, new Accumulator()));
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                completion.take().get().forEach((name, accumulator) -> totals.get(name).add(accumulator));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backtest interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backtest failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        List<ModelBacktestDTO> results = new ArrayList<>();
+        totals.forEach((name, accumulator) -> results.add(accumulator.toDTO(name)));
+        return new BacktestReportDTO(storeIds.size(), horizon, step, minTrainingDays, results);
+    }
+
+    private Map<String, Accumulator> replay(Integer storeId, DailyCTRSeries history,
+                                            Map<String, BiFunction<DailyCTRSeries, Integer, double[]>> selected,
+                                            int horizon, int step, int minTrainingDays) {
+        Map<String, Accumulator> results = new LinkedHashMap<>();
+        selected.keySet().forEach(name -> results.put(name, new Accumulator()));
+        double[] values = history.getValues();
+        
+        for (int origin = minTrainingDays; origin < values.length; origin += step) {
+            DailyCTRSeries training = history.prefix(origin);
+            if (training.getObservedDays() == 0) {
+                continue;
+            }
+            // Engines forecast from the day after the last day they were trained on
+            int firstDay = (int) (training.getEnd().toEpochDay() - history.getStart().toEpochDay()) + 1;
+            
+            for (Map.Entry<String, BiFunction<DailyCTRSeries, Integer, double[]>> model : selected.entrySet()) {
+                Accumulator accumulator = results.get(model.getKey());
+                long started = System.nanoTime();
+                double[] forecast;
+                try {
+                    forecast = model.getValue().apply(training, CTRPredictionService.MODEL_HORIZON_DAYS);
+                } catch (Exception e) {
+                    accumulator.failures++;
+                    continue;
+                }
+                long trained = System.nanoTime();
+                CTRForecastModel trainedModel = new CTRForecastModel(storeId, model.getKey(), forecast, training.getEnd());
+                double[] predicted = trainedModel.forecast(horizon);
+                CTRPredictionService.toPredictions(predicted);
+                long served = System.nanoTime();
+                
+                accumulator.forecasts++;
+                accumulator.trainingNanos += trained - started;
+                accumulator.inferenceNanos += served - trained;
+                for (int h = 0; h < predicted.length && firstDay + h < values.length; h++) {
+                    double actual = values[firstDay + h];
+                    if (Double.isNaN(actual) || Double.isNaN(predicted[h])) {
+                        continue;
+                    }
+                    // Compare what would have been served, which is clamped to a valid CTR
+                    double error = Math.abs(Math.max(0, Math.min(1, predicted[h])) - actual);
+                    accumulator.points++;
+                    accumulator.absoluteError += error;
+                    if (actual > 0) {
+                        accumulator.percentagePoints++;
+                        accumulator.percentageError += error / actual;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static final class Accumulator {
+        private long forecasts;
+        private long failures;
+        private long points;
+        private double absoluteError;
+        private long percentagePoints;
+        private double percentageError;
+        private long trainingNanos;
+        private long inferenceNanos;
+
+        void add(Accumulator other) {
+            forecasts += other.forecasts;
+            failures += other.failures;
+            points += other.points;
+            absoluteError += other.absoluteError;
+            percentagePoints += other.percentagePoints;
+            percentageError += other.percentageError;
+            trainingNanos += other.trainingNanos;
+            inferenceNanos += other.inferenceNanos;
+        }
+
+        ModelBacktestDTO toDTO(String model) {
+            return new ModelBacktestDTO(model, forecasts, failures, points,
+                    points > 0 ? absoluteError / points : 0,
+                    percentagePoints > 0 ? percentageError / percentagePoints : null,
+                    forecasts > 0 ? trainingNanos / 1e6 / forecasts : 0,
+                    forecasts > 0 ? inferenceNanos / 1e3 / forecasts : 0);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.service;
+
+/**
+ * Forecasts daily CTR from a store's history. Implementations are Spring beans registered in
+ * {@link ForecastingEngines} under their name, so one can be chosen by config or per request.
+ */
+public interface ForecastingEngine {
+
+    /**
+     * @return The name the engine is selected by, e.g. "weka" or "holt-winters"
+     */
+    String getName();
+
+    /**
+     * @param history Daily CTR history, with at least one observed day
+     * @param days    The number of days to predict
+     * @return Predicted CTR per day, day 1 first; NaN where there is no prediction
+     * @throws RuntimeException when the engine cannot forecast this history
+     */
+    double[] forecast(DailyCTRSeries history, int days);
+}
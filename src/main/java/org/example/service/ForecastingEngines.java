@@ -0,0 +1,47 @@
+package org.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The available forecasting engines by name, and the one configured as default
+ */
+@Component
+public class ForecastingEngines {
+    private final Map<String, ForecastingEngine> engines = new TreeMap<>();
+    private final ForecastingEngine defaultEngine;
+
+    public ForecastingEngines(List<ForecastingEngine> engines,
+                              @Value("${analytics.forecast.engine:weka}") String defaultEngine) {
+        for (ForecastingEngine engine : engines) {
+            this.engines.put(engine.getName(), engine);
+        }
+        this.defaultEngine = get(defaultEngine);
+    }
+
+    public ForecastingEngine getDefault() {
+        return defaultEngine;
+    }
+
+    /**
+     * @param name The engine name
+     * @return The engine
+     * @throws IllegalArgumentException if there is no engine with that name
+     */
+    public ForecastingEngine get(String name) {
+        ForecastingEngine engine = engines.get(name);
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown forecasting engine: " + name + ", available: " + engines.keySet());
+        }
+        return engine;
+    }
+
+    public Set<String> getNames() {
+        return engines.keySet();
+    }
+}
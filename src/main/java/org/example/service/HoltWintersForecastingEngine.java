@@ -0,0 +1,124 @@
+package org.example.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Additive Holt-Winters with a damped trend and weekly seasonality, run directly on the
+ * history array. The smoothing factors are picked by a small grid search on the one-step
+ * error; each candidate is one pass over the history with no allocation beyond the
+ * seasonal state, so a year of history is fitted in well under a millisecond.
+ * Histories shorter than two weeks are fitted without seasonality.
+ */
+@Component
+public class HoltWintersForecastingEngine implements ForecastingEngine {
+    public static final String NAME = "holt-winters";
+
+    static final int SEASON_LENGTH = 7;
+
+    /**
+     * Trend damping, so long horizons level off instead of extrapolating a short-term slope
+     */
+    static final double PHI = 0.95;
+
+    private static final double[] ALPHAS = {0.1, 0.3, 0.5, 0.7, 0.9};
+    private static final double[] BETAS = {0.01, 0.1, 0.3};
+    private static final double[] GAMMAS = {0.05, 0.2, 0.5};
+    private static final double[] NO_GAMMA = {0};
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public double[] forecast(DailyCTRSeries history, int days) {
+        if (history.getObservedDays() < 2) {
+            throw new IllegalArgumentException("Holt-Winters needs at least two days of history");
+        }
+        double[] values = history.getValues();
+        int period = values.length >= 2 * SEASON_LENGTH ? SEASON_LENGTH : 1;
+        double fill = history.average(0);
+        double[] season = new double[period];
+
+        double bestError = Double.MAX_VALUE;
+        double bestAlpha = ALPHAS[0];
+        double bestBeta = BETAS[0];
+        double bestGamma = 0;
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : period > 1 ? GAMMAS : NO_GAMMA) {
+                    double error = smooth(values, period, fill, alpha, beta, gamma, season, null);
+                    if (error < bestError) {
+                        bestError = error;
+                        bestAlpha = alpha;
+                        bestBeta = beta;
+                        bestGamma = gamma;
+                    }
+                }
+            }
+        }
+
+        double[] forecast = new double[days];
+        smooth(values, period, fill, bestAlpha, bestBeta, bestGamma, season, forecast);
+        return forecast;
+    }
+
+    /**
+     * Runs the smoothing recursions over the history. Days without sends take the one-step
+     * prediction as their value, so they carry the state forward without adding error.
+     *
+     * @param season   Scratch array for the seasonal state, one entry per day of the period
+     * @param forecast Filled with the forecast from the final state when not null
+     * @return Sum of squared one-step errors on the observed days
+     */
+    private static double smooth(double[] values, int period, double fill, double alpha, double beta, double gamma,
+                                 double[] season, double[] forecast) {
+        int n = values.length;
+        double level = meanOf(values, 0, Math.min(period, n), fill);
+        double trend = n >= 2 * period && period > 1
+                ? (meanOf(values, period, 2 * period, fill) - level) / period
+                : 0;
+        for (int i = 0; i < period; i++) {
+            season[i] = period > 1 ? valueOr(values[i], fill) - level : 0;
+        }
+
+        double error = 0;
+        for (int t = 0; t < n; t++) {
+            int s = t % period;
+            double predicted = level + PHI * trend + season[s];
+            double actual = predicted;
+            if (!Double.isNaN(values[t])) {
+                actual = values[t];
+                error += (actual - predicted) * (actual - predicted);
+            }
+            
+            double previousLevel = level;
+            level = alpha * (actual - season[s]) + (1 - alpha) * (previousLevel + PHI * trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * PHI * trend;
+            season[s] = gamma * (actual - level) + (1 - gamma) * season[s];
+        }
+
+        if (forecast != null) {
+            double damping = 0;
+            double phiPower = 1;
+            for (int h = 1; h <= forecast.length; h++) {
+                phiPower *= PHI;
+                damping += phiPower;
+                forecast[h - 1] = level + damping * trend + season[(n + h - 1) % period];
+            }
+        }
+        return error;
+    }
+
+    private static double meanOf(double[] values, int from, int to, double fill) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += valueOr(values[i], fill);
+        }
+        return sum / (to - from);
+    }
+
+    private static double valueOr(double value, double fill) {
+        return Double.isNaN(value) ? fill : value;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.service;
+
+/**
+ * Fixed log-scale histogram of durations in seconds. Bucket 0 holds everything under one
+ * second; above that there are {@value #BUCKETS_PER_DOUBLING} buckets per doubling, so a
+ * percentile read from a bucket bound is within about 19% of the true value. The last
+ * bucket also takes everything longer than its bound (about two years).
+ * Histograms with the same layout are merged by adding their counts.
+ */
+public final class LatencyHistogram {
+    public static final int BUCKETS_PER_DOUBLING = 4;
+    public static final int BUCKET_COUNT = 105;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total;
+
+    /**
+     * @param seconds A duration in seconds
+     * @return The bucket the duration falls in
+     */
+    public static int bucketOf(double seconds) {
+        if (!(seconds >= 1)) {
+            return 0;
+        }
+        int bucket = (int) Math.floor(Math.log(seconds) / Math.log(2) * BUCKETS_PER_DOUBLING) + 1;
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @param bucket A bucket index
+     * @return The exclusive upper bound of the bucket in seconds
+     */
+    public static double upperBoundSeconds(int bucket) {
+        return Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING);
+    }
+
+    public void record(double seconds) {
+        add(bucketOf(seconds), 1);
+    }
+
+    public synchronized void add(int bucket, long count) {
+        counts[Math.max(0, Math.min(bucket, BUCKET_COUNT - 1))] += count;
+        total += count;
+    }
+
+    /**
+     * Adds the counts of another histogram to this one
+     * @param other The histogram to merge in
+     */
+    public void merge(LatencyHistogram other) {
+        // Copy first so two histograms are never locked at the same time
+        long[] otherCounts = other.getCounts();
+        synchronized (this) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += otherCounts[i];
+                total += otherCounts[i];
+            }
+        }
+    }
+
+    /**
+     * @return A copy of the per-bucket counts
+     */
+    public synchronized long[] getCounts() {
+        return counts.clone();
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param quantile A quantile between 0 and 1, e.g. 0.9 for p90
+     * @return Upper bound in seconds of the bucket holding the quantile, or 0 when empty
+     */
+    public synchronized double percentile(double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundSeconds(i);
+            }
+        }
+        return upperBoundSeconds(BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes tracking link clicks in the background. Redirects only append clicks to the
+ * {@link ClickJournal}; one writer thread reads them back and inserts each batch of link_click
+ * rows with a JDBC batch, recording the batch's activity in the same transaction, and commits
+ * the batch in the journal once the transaction has committed. A batch that violates a
+ * constraint is split in halves until the clicks that fail on their own are found, which are
+ * logged, counted and skipped so they cannot block the journal. Any other failure, such as a
+ * connection or transaction that cannot be opened, is taken to mean the database is
+ * unavailable: the batch is retried until it is back, and clicks still in the journal at
+ * shutdown are written after the next start.
+ * <p>
+ * The journal is committed after the database, so a crash between the two writes the batch
+ * again after the restart: delivery is at least once.
+ * Without a journal directory clicks go through a bounded in-memory queue instead, which is
+ * drained on shutdown; clicks that cannot be written are then logged and skipped right away.
+ * When the journal or queue is full the click is dropped and counted, so a writer that falls
+ * behind never slows redirects down or adds load to a database that is already struggling.
+ */
+@Component
+public class LinkClickWriter {
+    private static final Logger logger = LoggerFactory.getLogger(LinkClickWriter.class);
+    private static final String INSERT_SQL =
+            "INSERT INTO link_click (sent_text_message_id, clicked_at) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageActivityService messageActivityService;
+    private final ClickJournal journal;
+    private final BlockingQueue<TrackedClick> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration retryDelay;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private volatile boolean running;
+    private Thread writer;
+
+    public LinkClickWriter(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           MessageActivityService messageActivityService,
+                           ClickJournal journal,
+                           @Value("${tracking.click.queue-capacity:100000}") int queueCapacity,
+                           @Value("${tracking.click.batch-size:1000}") int batchSize,
+                           @Value("${tracking.click.flush-interval:200ms}") Duration flushInterval,
+                           @Value("${tracking.click.retry-delay:5s}") Duration retryDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messageActivityService = messageActivityService;
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.retryDelay = retryDelay;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "link-click-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer once the queue is empty, or after its next batch when using the journal,
+     * and waits for the last batch
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(flushInterval.toMillis() + 30_000);
+        }
+    }
+
+    /**
+     * Queues a click for the writer, or drops it when the journal or queue is full
+     * @param click The click
+     * @return False when the click was dropped
+     */
+    public boolean enqueue(TrackedClick click) {
+        boolean queued = journal.isEnabled() ? journal.append(click) : queue.offer(click);
+        if (!queued) {
+            dropped.increment();
+            logger.debug("Click journal or queue is full, dropped click on message {}", click.getLink().getMessageId());
+        }
+        return queued;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("queued", journal.isEnabled() ? journal.getPending() : queue.size());
+        result.put("written", written.sum());
+        result.put("dropped", dropped.sum());
+        result.put("failedAttempts", failedAttempts.sum());
+        result.put("skipped", skipped.sum());
+        result.put("journal", journal.getStats());
+        return result;
+    }
+
+    /**
+     * Writes one batch of clicks and their activity in a single transaction
+     * @param clicks The clicks to write
+     * @throws RuntimeException when the batch was rolled back
+     */
+    private void write(List<TrackedClick> clicks) {
+        List<Object[]> rows = new ArrayList<>(clicks.size());
+        for (TrackedClick click : clicks) {
+            rows.add(new Object[]{click.getLink().getMessageId(), Timestamp.valueOf(click.getClickedAt())});
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            messageActivityService.recordLinkClicks(clicks);
+        });
+        written.add(clicks.size());
+    }
+
+    /**
+     * Writes a batch, splitting it to skip the clicks that violate a constraint
+     * @param clicks The clicks to write
+     * @return Number of clicks from the start of the batch that were written or skipped; the
+     *         rest should be retried once the database is available again
+     */
+    int writeOrSkip(List<TrackedClick> clicks) {
+        try {
+            write(clicks);
+            return clicks.size();
+        } catch (DataIntegrityViolationException e) {
+            failedAttempts.increment();
+            if (clicks.size() == 1) {
+                TrackedClick click = clicks.get(0);
+                skipped.increment();
+                logger.error("Skipped link click on message {} at {}: {}",
+                        click.getLink().getMessageId(), click.getClickedAt(), e.getMessage());
+                return 1;
+            }
+            int half = clicks.size() / 2;
+            int done = writeOrSkip(clicks.subList(0, half));
+            return done < half ? done : half + writeOrSkip(clicks.subList(half, clicks.size()));
+        } catch (RuntimeException e) {
+            // Outages surface from the transaction manager or the connection, not as data errors
+            failedAttempts.increment();
+            logger.warn("Could not write {} link clicks, will retry: {}", clicks.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private void drain() {
+        try {
+            if (journal.isEnabled()) {
+                drainJournal();
+            } else {
+                drainQueue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainJournal() throws InterruptedException {
+        boolean stopping;
+        long lastForce = System.nanoTime();
+        do {
+            stopping = !running;
+            List<TrackedClick> batch = journal.read(batchSize);
+            if (batch.isEmpty()) {
+                Thread.sleep(flushInterval.toMillis());
+            } else {
+                int done = writeOrSkip(batch);
+                journal.commit(done);
+                if (done < batch.size() && !stopping) {
+                    Thread.sleep(retryDelay.toMillis());
+                }
+            }
+            if (System.nanoTime() - lastForce >= flushInterval.toNanos()) {
+                journal.force();
+                lastForce = System.nanoTime();
+            }
+        } while (!stopping);
+    }
+
+    private void drainQueue() throws InterruptedException {
+        List<TrackedClick> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            TrackedClick first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            int done = writeOrSkip(batch);
+            if (done < batch.size()) {
+                skipped.add(batch.size() - done);
+                logger.error("Skipped {} link clicks, the database is unavailable", batch.size() - done);
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.repository.StoreTemplateDailyStatsRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write-path entry point for message and click activity.
+ * Every recorded send or click is folded into the daily rollup table that analytics read from.
+ * Once the transaction commits, the in-memory recent activity counters and time-to-click
+ * histograms are updated, the cached analytics of the affected store are invalidated, its
+ * forecast model is marked for retraining when the activity is on a new day and its online
+ * forecast model, if any, is updated in place.
+ * Messages without a template are not part of the rollup, but count towards the recent
+ * activity and forecasts of their store like every other message, as they do when those are
+ * seeded from the message tables. Messages without a store are ignored.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageActivityService {
+    private final StoreTemplateDailyStatsRepository dailyStatsRepository;
+    private final StoreAnalyticsCache storeAnalyticsCache;
+    private final RecentActivityCounters recentActivityCounters;
+    private final TimeToClickHistograms timeToClickHistograms;
+    private final CTRForecastModelCache forecastModelCache;
+    private final OnlineForecastingEngine onlineForecastingEngine;
+
+    /**
+     * Records that a message was sent from a store using a template
+     * @param storeId The store that sent the message
+     * @param templateId The template the message was built from
+     * @param sentAt When the message was sent
+     */
+    @Transactional
+    public void recordMessageSent(Integer storeId, Integer templateId, LocalDateTime sentAt) {
+        recordMessagesSent(storeId, templateId, sentAt, 1);
+    }
+
+    /**
+     * Records a number of messages sent on the same day from a store using a template
+     * @param storeId The store that sent the messages
+     * @param templateId The template the messages were built from
+     * @param sentAt When the messages were sent
+     * @param count Number of messages sent
+     */
+    @Transactional
+    public void recordMessagesSent(Integer storeId, Integer templateId, LocalDateTime sentAt, long count) {
+        if (storeId == null || count <= 0) {
+            return;
+        }
+        if (templateId != null) {
+            dailyStatsRepository.addSends(storeId, templateId, sentAt.toLocalDate(), count);
+        }
+        afterCommit(() -> {
+            recentActivityCounters.recordSends(storeId, sentAt, count);
+            forecastModelCache.onActivity(storeId, sentAt.toLocalDate());
+            onlineForecastingEngine.record(storeId, sentAt.toLocalDate(), count, 0);
+            storeAnalyticsCache.evict(storeId);
+        });
+    }
+
+    /**
+     * Records a click on the tracking link of a message
+     * @param storeId The store that sent the clicked message
+     * @param templateId The template of the clicked message
+     * @param sentAt When the clicked message was sent
+     * @param clickedAt When the link was clicked
+     */
+    @Transactional
+    public void recordLinkClick(Integer storeId, Integer templateId, LocalDateTime sentAt, LocalDateTime clickedAt) {
+        if (storeId == null) {
+            return;
+        }
+        if (templateId != null) {
+            dailyStatsRepository.addClicks(storeId, templateId, clickedAt.toLocalDate(), 1);
+        }
+        afterCommit(() -> {
+            recentActivityCounters.recordClicks(storeId, clickedAt, 1);
+            if (templateId != null) {
+                timeToClickHistograms.record(storeId, templateId, sentAt, clickedAt);
+            }
+            forecastModelCache.onActivity(storeId, clickedAt.toLocalDate());
+            onlineForecastingEngine.record(storeId, clickedAt.toLocalDate(), 0, 1);
+            storeAnalyticsCache.evict(storeId);
+        });
+    }
+
+    /**
+     * Records a batch of tracking link clicks. Clicks are summed per store, template and day
+     * first, so a campaign blast costs one rollup upsert per group instead of one per click.
+     * @param clicks The clicks to record
+     */
+    @Transactional
+    public void recordLinkClicks(Collection<TrackedClick> clicks) {
+        Map<RollupKey, Long> counts = new HashMap<>();
+        boolean anyStore = false;
+        for (TrackedClick click : clicks) {
+            TrackingLink link = click.getLink();
+            anyStore |= link.getStoreId() != null;
+            if (link.getStoreId() != null && link.getTemplateId() != null) {
+                RollupKey key = new RollupKey(link.getStoreId(), link.getTemplateId(), click.getClickedAt().toLocalDate());
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+        if (!anyStore) {
+            return;
+        }
+        counts.forEach((key, count) -> dailyStatsRepository.addClicks(key.storeId(), key.templateId(), key.date(), count));
+        afterCommit(() -> {
+            Set<Integer> storeIds = new HashSet<>();
+            for (TrackedClick click : clicks) {
+                TrackingLink link = click.getLink();
+                if (link.getStoreId() == null) {
+                    continue;
+                }
+                LocalDateTime clickedAt = click.getClickedAt();
+                recentActivityCounters.recordClicks(link.getStoreId(), clickedAt, 1);
+                if (link.getTemplateId() != null) {
+                    timeToClickHistograms.record(link.getStoreId(), link.getTemplateId(), link.getSentAt(), clickedAt);
+                }
+                forecastModelCache.onActivity(link.getStoreId(), clickedAt.toLocalDate());
+                onlineForecastingEngine.record(link.getStoreId(), clickedAt.toLocalDate(), 0, 1);
+                storeIds.add(link.getStoreId());
+            }
+            storeIds.forEach(storeAnalyticsCache::evict);
+        });
+    }
+
+    /**
+     * Runs an action once the current transaction has committed, so in-memory state never
+     * reflects rows that were rolled back and a concurrent reader cannot re-cache old numbers.
+     * Runs the action immediately when there is no transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record RollupKey(Integer storeId, Integer templateId, LocalDate date) {
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.service;
+
+import java.time.LocalDate;
+
+/**
+ * Linear trend of a store's daily CTR, fitted by exponentially weighted least squares and
+ * updated one day at a time. Only the weighted sums of the regression are kept, with time
+ * measured from the newest day, so adding a day costs O(1) no matter how long the history is.
+ * <p>
+ * Sends and clicks of the newest day are accumulated until activity for a later day arrives;
+ * the day's CTR then becomes one point of the regression and older points are decayed.
+ * Activity for days before the newest one is ignored, since those days are already folded in.
+ */
+public final class OnlineCTRRegression {
+    private final double decay;
+
+    // Weighted sums over completed days; t is the day offset from currentDay, so always <= 0
+    private double weight;
+    private double sumT;
+    private double sumT2;
+    private double sumY;
+    private double sumTY;
+    private int observedDays;
+
+    private long currentDay = Long.MIN_VALUE;
+    private double pendingSends;
+    private double pendingClicks;
+
+    /**
+     * @param decay Weight kept by a day's point for each day that passes, e.g. 0.97 gives
+     *              the last month most of the weight; 1 weighs all days equally
+     */
+    public OnlineCTRRegression(double decay) {
+        if (!(decay > 0 && decay <= 1)) {
+            throw new IllegalArgumentException("Decay must be in (0, 1], got " + decay);
+        }
+        this.decay = decay;
+    }
+
+    /**
+     * Builds a regression from a full history, as if its days had been added one by one
+     */
+    public static OnlineCTRRegression of(DailyCTRSeries history, double decay) {
+        OnlineCTRRegression regression = new OnlineCTRRegression(decay);
+        double[] values = history.getValues();
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) {
+                regression.add(history.getStart().toEpochDay() + i, 1, values[i]);
+            }
+        }
+        return regression;
+    }
+
+    /**
+     * Adds activity of one day
+     * @param date Day of the activity
+     * @param sends Messages sent
+     * @param clicks Links clicked
+     */
+    public void add(LocalDate date, long sends, long clicks) {
+        add(date.toEpochDay(), sends, clicks);
+    }
+
+    private synchronized void add(long day, double sends, double clicks) {
+        if (currentDay == Long.MIN_VALUE) {
+            currentDay = day;
+        } else if (day < currentDay) {
+            return;
+        } else if (day > currentDay) {
+            advanceTo(day);
+        }
+        pendingSends += sends;
+        pendingClicks += clicks;
+    }
+
+    /**
+     * Folds the pending day into the sums, then moves the time origin to the given day
+     */
+    private void advanceTo(long day) {
+        if (pendingSends > 0) {
+            // The point is at t = 0, so it only adds to the weight and the CTR sum
+            weight += 1;
+            sumY += pendingClicks / pendingSends;
+            observedDays++;
+        }
+        pendingSends = 0;
+        pendingClicks = 0;
+
+        long shift = day - currentDay;
+        double factor = Math.pow(decay, shift);
+        // Re-center t' = t - shift; sumT2 goes first as it uses the old sumT
+        sumT2 = (sumT2 - 2 * shift * sumT + (double) shift * shift * weight) * factor;
+        sumT = (sumT - shift * weight) * factor;
+        sumTY = (sumTY - shift * sumY) * factor;
+        sumY *= factor;
+        weight *= factor;
+        currentDay = day;
+    }
+
+    /**
+     * Forecasts CTR from the current fit, including the newest day's activity so far
+     * @param today The day before the first forecast day
+     * @param days The number of days to predict
+     * @return Predicted CTR per day, starting the day after today
+     * @throws IllegalStateException if no day with sends has been added
+     */
+    public synchronized double[] forecast(LocalDate today, int days) {
+        double w = weight;
+        double y = sumY;
+        int observed = observedDays;
+        if (pendingSends > 0) {
+            w += 1;
+            y += pendingClicks / pendingSends;
+            observed++;
+        }
+        if (observed == 0) {
+            throw new IllegalStateException("No days with sends to forecast from");
+        }
+
+        double slope = 0;
+        double denominator = w * sumT2 - sumT * sumT;
+        if (observed > 1 && denominator > 1e-12 * w * w) {
+            slope = (w * sumTY - sumT * y) / denominator;
+        }
+        double intercept = (y - slope * sumT) / w;
+
+        double[] forecast = new double[days];
+        long firstOffset = today.toEpochDay() + 1 - currentDay;
+        for (int i = 0; i < days; i++) {
+            forecast[i] = intercept + slope * (firstOffset + i);
+        }
+        return forecast;
+    }
+
+    public synchronized int getObservedDays() {
+        return observedDays + (pendingSends > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.function.BiConsumer;
+
+/**
+ * Forecasts with an {@link OnlineCTRRegression} per store. The store's model is built from its
+ * history on first use and then kept current by the write path, one day's sends and clicks at a
+ * time, so it never needs a full scan and retrain. Activity committed while a model is being
+ * built from the database may be missed; it only shifts the newest point slightly.
+ */
+@Component
+public class OnlineForecastingEngine implements ForecastingEngine {
+    public static final String NAME = "online";
+
+    private final double decay;
+    private final Cache<Integer, OnlineCTRRegression> models;
+
+    public OnlineForecastingEngine(@Value("${analytics.forecast.online.decay:0.97}") double decay,
+                                   @Value("${analytics.forecast.online.maximum-size:10000}") long maximumSize) {
+        this.decay = decay;
+        this.models = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Fits a regression to the whole history and forecasts from the day after it ends
+     */
+    @Override
+    public double[] forecast(DailyCTRSeries history, int days) {
+        return OnlineCTRRegression.of(history, decay).forecast(history.getEnd(), days);
+    }
+
+    /**
+     * Forecasts from the store's live model
+     * @param storeId The store ID
+     * @param days The number of days to predict
+     * @param loader Adds the store's daily history to a new model when the store has none yet
+     * @return Predicted CTR per day, starting tomorrow
+     */
+    public double[] forecast(Integer storeId, int days, BiConsumer<Integer, OnlineCTRRegression> loader) {
+        OnlineCTRRegression model = models.get(storeId, id -> {
+            OnlineCTRRegression regression = new OnlineCTRRegression(decay);
+            loader.accept(id, regression);
+            return regression;
+        });
+        return model.forecast(LocalDate.now(), days);
+    }
+
+    /**
+     * Adds recorded activity to the store's model, if it has one
+     * @param storeId The store the activity belongs to
+     * @param date Day of the activity
+     * @param sends Messages sent
+     * @param clicks Links clicked
+     */
+    public void record(Integer storeId, LocalDate date, long sends, long clicks) {
+        OnlineCTRRegression model = models.getIfPresent(storeId);
+        if (model != null) {
+            model.add(date, sends, clicks);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.service;
+
+import org.example.repository.LinkClickRepository;
+import org.example.repository.SentTextMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory sliding-window counters of sends and clicks per store, at hour granularity.
+ * Each store has a ring buffer covering the configured window; the write path feeds it
+ * and it is seeded from the database at startup, so "last N days" totals are answered
+ * without a query. Until seeding has finished, callers fall back to the database.
+ */
+@Component
+public class RecentActivityCounters {
+    private static final Logger logger = LoggerFactory.getLogger(RecentActivityCounters.class);
+
+    private final SentTextMessageRepository sentTextMessageRepository;
+    private final LinkClickRepository linkClickRepository;
+    private final int windowHours;
+    private final boolean seedOnStartup;
+    private final Clock clock;
+    private final LocalDateTime startedAt;
+    private final Map<Integer, StoreWindow> windows = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    @Autowired
+    public RecentActivityCounters(SentTextMessageRepository sentTextMessageRepository,
+                                  LinkClickRepository linkClickRepository,
+                                  @Value("${analytics.recent.window-hours:720}") int windowHours,
+                                  @Value("${analytics.recent.seed-on-startup:true}") boolean seedOnStartup) {
+        this(sentTextMessageRepository, linkClickRepository, windowHours, seedOnStartup, Clock.systemDefaultZone());
+    }
+
+    RecentActivityCounters(SentTextMessageRepository sentTextMessageRepository,
+                           LinkClickRepository linkClickRepository,
+                           int windowHours, boolean seedOnStartup, Clock clock) {
+        this.sentTextMessageRepository = sentTextMessageRepository;
+        this.linkClickRepository = linkClickRepository;
+        this.windowHours = windowHours;
+        this.seedOnStartup = seedOnStartup;
+        this.clock = clock;
+        this.startedAt = LocalDateTime.now(clock);
+    }
+
+    /**
+     * Loads hourly counts for the window from the database. Activity recorded after this
+     * bean was created is already counted by the write path, so only earlier rows are loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (!seedOnStartup) {
+            return;
+        }
+        LocalDateTime from = startedAt.minusHours(windowHours);
+        try {
+            for (Object[] row : sentTextMessageRepository.countMessagesByStoreAndHour(from, startedAt)) {
+                recordSends((Integer) row[0], ((Timestamp) row[1]).toLocalDateTime(), ((Number) row[2]).longValue());
+            }
+            for (Object[] row : linkClickRepository.countClicksByStoreAndHour(from, startedAt)) {
+                recordClicks((Integer) row[0], ((Timestamp) row[1]).toLocalDateTime(), ((Number) row[2]).longValue());
+            }
+            seeded = true;
+            logger.info("Seeded recent activity counters for {} stores", windows.size());
+        } catch (Exception e) {
+            logger.warn("Could not seed recent activity counters, recent analytics will use the database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the counters as complete without loading anything from the database
+     */
+    void markSeeded() {
+        seeded = true;
+    }
+
+    public void recordSends(Integer storeId, LocalDateTime sentAt, long count) {
+        record(storeId, sentAt, count, 0);
+    }
+
+    public void recordClicks(Integer storeId, LocalDateTime clickedAt, long count) {
+        record(storeId, clickedAt, 0, count);
+    }
+
+    private void record(Integer storeId, LocalDateTime time, long sends, long clicks) {
+        if (storeId == null) {
+            return;
+        }
+        int hour = hourOf(time);
+        if (hour <= hourOf(LocalDateTime.now(clock)) - windowHours) {
+            return; // Older than the window
+        }
+        windows.computeIfAbsent(storeId, id -> new StoreWindow(windowHours)).add(hour, sends, clicks);
+    }
+
+    /**
+     * Totals for the last N days, answered from memory
+     * @param storeId The store ID
+     * @param days Number of days to include
+     * @return {sends, clicks}, or null when the counters cannot answer (not seeded yet or the period exceeds the window)
+     */
+    public long[] getTotals(Integer storeId, int days) {
+        int hours = days * 24;
+        if (!seeded || hours > windowHours) {
+            return null;
+        }
+        StoreWindow window = windows.get(storeId);
+        if (window == null) {
+            return new long[]{0, 0};
+        }
+        int currentHour = hourOf(LocalDateTime.now(clock));
+        return window.sum(currentHour - hours + 1, currentHour);
+    }
+
+    private static int hourOf(LocalDateTime time) {
+        return (int) (time.toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+
+    /**
+     * Ring buffer of hourly counters for one store. Slot i holds the hour
+     * stored in hours[i]; a slot is reset when a newer hour maps onto it.
+     */
+    private static final class StoreWindow {
+        private final int[] hours;
+        private final int[] sends;
+        private final int[] clicks;
+
+        StoreWindow(int size) {
+            hours = new int[size];
+            sends = new int[size];
+            clicks = new int[size];
+        }
+
+        synchronized void add(int hour, long sendCount, long clickCount) {
+            int slot = Math.floorMod(hour, hours.length);
+            if (hours[slot] != hour) {
+                if (hours[slot] > hour) {
+                    return; // Slot already reused by a newer hour
+                }
+                hours[slot] = hour;
+                sends[slot] = 0;
+                clicks[slot] = 0;
+            }
+            sends[slot] += (int) sendCount;
+            clicks[slot] += (int) clickCount;
+        }
+
+        synchronized long[] sum(int fromHour, int toHour) {
+            long sendTotal = 0;
+            long clickTotal = 0;
+            for (int slot = 0; slot < hours.length; slot++) {
+                if (hours[slot] >= fromHour && hours[slot] <= toHour) {
+                    sendTotal += sends[slot];
+                    clickTotal += clicks[slot];
+                }
+            }
+            return new long[]{sendTotal, clickTotal};
+        }
+    }
+}
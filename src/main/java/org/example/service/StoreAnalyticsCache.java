@@ -0,0 +1,53 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.config.CacheConfig;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-store invalidation and statistics for the store analytics cache
+ * that sits in front of {@link AnalyticsService#getStoreAnalytics(Integer)}.
+ */
+@Component
+public class StoreAnalyticsCache {
+    private final CaffeineCache cache;
+    private final LongAdder invalidations = new LongAdder();
+
+    public StoreAnalyticsCache(CacheManager cacheManager) {
+        this.cache = (CaffeineCache) cacheManager.getCache(CacheConfig.STORE_ANALYTICS_CACHE);
+    }
+
+    /**
+     * Drops the cached analytics for a store
+     * @param storeId The store whose analytics changed
+     */
+    public void evict(Integer storeId) {
+        // Remove through the map view so the lookup is not counted as a hit or miss
+        if (cache.getNativeCache().asMap().remove(storeId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counters for sizing the cache
+     * @return Cache statistics as a map
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.getNativeCache().stats();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", cache.getNativeCache().estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.sum());
+        return result;
+    }
+}
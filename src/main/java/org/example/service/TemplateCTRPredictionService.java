@@ -0,0 +1,140 @@
+package org.example.service;
+
+import org.example.dto.TemplateCTRPredictionDTO;
+import org.example.model.TextMessageTemplate;
+import org.example.repository.StoreTemplateDailyStatsRepository;
+import org.example.repository.TextMessageTemplateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * CTR forecasts for each template of a store. The daily history of all templates is loaded
+ * with one grouped query, and the template models are trained on the forecast pool with at
+ * most {@code analytics.forecast.template.max-concurrency} of them in flight per request, so
+ * a store with many templates leaves room on the pool for other requests.
+ * Template models are not cached; they are trained on every request and only forecast the
+ * requested days.
+ */
+@Service
+public class TemplateCTRPredictionService {
+    private static final Logger logger = LoggerFactory.getLogger(TemplateCTRPredictionService.class);
+
+    private final StoreTemplateDailyStatsRepository dailyStatsRepository;
+    private final TextMessageTemplateRepository templateRepository;
+    private final CTRPredictionService ctrPredictionService;
+    private final ExecutorService forecastPool;
+    private final int maxConcurrency;
+
+    public TemplateCTRPredictionService(StoreTemplateDailyStatsRepository dailyStatsRepository,
+                                        TextMessageTemplateRepository templateRepository,
+                                        CTRPredictionService ctrPredictionService,
+                                        ExecutorService forecastPool,
+                                        @Value("${analytics.forecast.template.max-concurrency:4}") int maxConcurrency) {
+        this.dailyStatsRepository = dailyStatsRepository;
+        this.templateRepository = templateRepository;
+        this.ctrPredictionService = ctrPredictionService;
+        this.forecastPool = forecastPool;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * Predicts CTR for every template of a store, including templates that have not been sent yet
+     *
+     * @param storeId The ID of the store
+     * @param days    The number of days to predict into the future
+     * @return One prediction per template, ordered by template ID
+     */
+    public List<TemplateCTRPredictionDTO> predictTemplateCTR(Integer storeId, int days) {
+        Map<Integer, DailyCTRSeries.Builder> historyByTemplate = new TreeMap<>();
+        Map<Integer, long[]> totalsByTemplate = new TreeMap<>();
+        for (Object[] row : dailyStatsRepository.findDailyActivityByTemplate(storeId)) {
+            Integer templateId = (Integer) row[0];
+            LocalDate date = row[1] instanceof LocalDate ? (LocalDate) row[1] : ((Date) row[1]).toLocalDate();
+            long messages = ((Number) row[2]).longValue();
+            long clicks = ((Number) row[3]).longValue();
+            
+            historyByTemplate.computeIfAbsent(templateId, id -> new DailyCTRSeries.Builder()).add(date, messages, clicks);
+            long[] totals = totalsByTemplate.computeIfAbsent(templateId, id -> new long[2]);
+            totals[0] += messages;
+            totals[1] += clicks;
+        }
+
+        Map<Integer, String> names = new TreeMap<>();
+        for (TextMessageTemplate template : templateRepository.findByStoreId(storeId)) {
+            names.put(template.getId(), template.getTemplateName());
+        }
+        historyByTemplate.keySet().forEach(templateId -> names.putIfAbsent(templateId, null));
+
+        List<Callable<TemplateCTRPredictionDTO>> tasks = new ArrayList<>();
+        names.forEach((templateId, name) -> {
+            DailyCTRSeries.Builder history = historyByTemplate.get(templateId);
+            long[] totals = totalsByTemplate.getOrDefault(templateId, new long[2]);
+            tasks.add(() -> predict(storeId, templateId, name, days,
+                    history != null ? history.build() : DailyCTRSeries.empty(), totals));
+        });
+
+        List<TemplateCTRPredictionDTO> predictions = runWithCap(tasks);
+        predictions.sort(Comparator.comparing(TemplateCTRPredictionDTO::getTemplateId));
+        return predictions;
+    }
+
+    private TemplateCTRPredictionDTO predict(Integer storeId, Integer templateId, String name, int days,
+                                             DailyCTRSeries history, long[] totals) {
+        logger.debug("Training forecast model for template {} of store {}", templateId, storeId);
+        CTRForecastModel model = ctrPredictionService.trainModel(storeId, history, days);
+        
+        TemplateCTRPredictionDTO prediction = new TemplateCTRPredictionDTO();
+        prediction.setTemplateId(templateId);
+        prediction.setTemplateName(name);
+        prediction.setPredictions(CTRPredictionService.toPredictions(model.forecast(days)));
+        prediction.setCurrentCTR(totals[0] > 0 ? (double) totals[1] / totals[0] : 0.0);
+        prediction.updateCalculatedFields();
+        return prediction;
+    }
+
+    /**
+     * Runs the tasks on the forecast pool, submitting the next one only when one finishes
+     * once {@link #maxConcurrency} are in flight
+     */
+    private <T> List<T> runWithCap(List<Callable<T>> tasks) {
+        CompletionService<T> completion = new ExecutorCompletionService<>(forecastPool);
+        List<Future<T>> futures = new ArrayList<>();
+        List<T> results = new ArrayList<>(tasks.size());
+        int next = 0;
+        try {
+            while (next < tasks.size() && next < maxConcurrency) {
+                futures.add(completion.submit(tasks.get(next++)));
+            }
+            while (results.size() < tasks.size()) {
+                results.add(completion.take().get());
+                if (next < tasks.size()) {
+                    futures.add(completion.submit(tasks.get(next++)));
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Template prediction interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Template prediction failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Bucket sizes for analytics time series. Truncation matches PostgreSQL's date_trunc,
+ * so buckets computed in the database line up with the ones computed here
+ * (weeks start on Monday).
+ */
+public enum TimeGranularity {
+    HOUR("hour"),
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    private final String sqlUnit;
+
+    TimeGranularity(String sqlUnit) {
+        this.sqlUnit = sqlUnit;
+    }
+
+    /**
+     * @return The unit name understood by date_trunc
+     */
+    public String getSqlUnit() {
+        return sqlUnit;
+    }
+
+    /**
+     * Parses a granularity name such as "hour" or "DAY"
+     * @param value The granularity name
+     * @return The matching granularity
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static TimeGranularity fromString(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @param time Any point in time
+     * @return The start of the bucket containing the given time
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        switch (this) {
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case WEEK:
+                return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+            default:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        }
+    }
+
+    /**
+     * @param bucketStart The start of a bucket
+     * @return The start of the following bucket
+     */
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        switch (this) {
+            case HOUR:
+                return bucketStart.plusHours(1);
+            case DAY:
+                return bucketStart.plusDays(1);
+            case WEEK:
+                return bucketStart.plusWeeks(1);
+            case MONTH:
+            default:
+                return bucketStart.plusMonths(1);
+        }
+    }
+
+    /**
+     * @param firstBucket The start of the first bucket of a series
+     * @param bucketStart The start of another bucket of the same series
+     * @return The position of that bucket in the series
+     */
+    public int indexOf(LocalDateTime firstBucket, LocalDateTime bucketStart) {
+        switch (this) {
+            case HOUR:
+                return (int) ChronoUnit.HOURS.between(firstBucket, bucketStart);
+            case DAY:
+                return (int) ChronoUnit.DAYS.between(firstBucket, bucketStart);
+            case WEEK:
+                return (int) ChronoUnit.WEEKS.between(firstBucket, bucketStart);
+            case MONTH:
+            default:
+                return (int) ChronoUnit.MONTHS.between(firstBucket, bucketStart);
+        }
+    }
+}
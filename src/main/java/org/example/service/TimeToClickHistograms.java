@@ -0,0 +1,93 @@
+package org.example.service;
+
+import org.example.repository.LinkClickRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory time-to-click histograms per store and template. The write path records every
+ * click with the send time of its message, and the histograms are seeded from the database
+ * at startup. Until seeding has finished, callers fall back to the database.
+ */
+@Component
+public class TimeToClickHistograms {
+    private static final Logger logger = LoggerFactory.getLogger(TimeToClickHistograms.class);
+
+    private final LinkClickRepository linkClickRepository;
+    private final boolean seedOnStartup;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final Map<Integer, Map<Integer, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    public TimeToClickHistograms(LinkClickRepository linkClickRepository,
+                                 @Value("${analytics.time-to-click.seed-on-startup:true}") boolean seedOnStartup) {
+        this.linkClickRepository = linkClickRepository;
+        this.seedOnStartup = seedOnStartup;
+    }
+
+    /**
+     * Loads bucket counts for clicks recorded before this bean was created;
+     * later clicks are already counted by the write path.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (!seedOnStartup) {
+            return;
+        }
+        try {
+            for (Object[] row : linkClickRepository.countTimeToClickBuckets(startedAt)) {
+                histogram((Integer) row[0], (Integer) row[1]).add(((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+            }
+            seeded = true;
+            logger.info("Seeded time-to-click histograms for {} stores", histograms.size());
+        } catch (Exception e) {
+            logger.warn("Could not seed time-to-click histograms, they will be read from the database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the histograms as complete without loading anything from the database
+     */
+    void markSeeded() {
+        seeded = true;
+    }
+
+    public void record(Integer storeId, Integer templateId, LocalDateTime sentAt, LocalDateTime clickedAt) {
+        if (storeId == null || templateId == null || sentAt == null || clickedAt == null) {
+            return;
+        }
+        histogram(storeId, templateId).record(Duration.between(sentAt, clickedAt).toMillis() / 1000.0);
+    }
+
+    /**
+     * Per-template histograms of the given stores, answered from memory
+     * @param storeIds The stores to include
+     * @return Histograms keyed by store ID and then template ID, or null when not seeded yet
+     */
+    public Map<Integer, Map<Integer, LatencyHistogram>> getHistograms(List<Integer> storeIds) {
+        if (!seeded) {
+            return null;
+        }
+        Map<Integer, Map<Integer, LatencyHistogram>> result = new HashMap<>();
+        for (Integer storeId : storeIds) {
+            result.put(storeId, histograms.getOrDefault(storeId, Map.of()));
+        }
+        return result;
+    }
+
+    private LatencyHistogram histogram(Integer storeId, Integer templateId) {
+        return histograms.computeIfAbsent(storeId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(templateId, id -> new LatencyHistogram());
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A click on a tracking link that is waiting to be written
+ */
+@Getter
+@RequiredArgsConstructor
+public class TrackedClick {
+    private final TrackingLink link;
+    private final LocalDateTime clickedAt;
+}
@@ -0,0 +1,151 @@
+package org.example.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * Tracking codes that carry their message and store ID. A code is a fixed-width checksum keyed
+ * with tracking.code.secret, one digit giving the length of the store ID, then the store and
+ * message IDs, all in base 62. Codes are decoded and checked without any lookup, so a guessed
+ * or altered code is rejected before it reaches the database. Codes are 8 to 18 characters.
+ * <p>
+ * The secret has no usable default: startup fails while it is unset or still the placeholder,
+ * since anyone who knows the key can forge clicks on any message.
+ */
+@Component
+public class TrackingCodes {
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int CHECKSUM_LENGTH = 5;
+    private static final long CHECKSUM_RANGE = 62L * 62 * 62 * 62 * 62;
+    private static final int MAX_ID_LENGTH = 6;
+    private static final String PLACEHOLDER_SECRET = "change-me";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public TrackingCodes(@Value("${tracking.code.secret:}") String secret) {
+        if (secret == null || secret.isBlank() || secret.equals(PLACEHOLDER_SECRET)) {
+            throw new IllegalStateException("tracking.code.secret must be set to a private key, e.g. with the "
+                    + "TRACKING_CODE_SECRET environment variable");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+    }
+
+    /**
+     * @param messageId The message ID
+     * @param storeId The store that sent the message, or null
+     * @return The tracking code of the message
+     */
+    public String encode(Integer messageId, Integer storeId) {
+        if (messageId == null || messageId <= 0 || storeId != null && storeId <= 0) {
+            throw new IllegalArgumentException("Cannot encode message " + messageId + " of store " + storeId);
+        }
+        String store = storeId == null ? "" : toBase62(storeId);
+        StringBuilder code = new StringBuilder(CHECKSUM_LENGTH + 1 + 2 * MAX_ID_LENGTH);
+        String checksum = toBase62(checksum(messageId, storeId == null ? 0 : storeId));
+        for (int i = checksum.length(); i < CHECKSUM_LENGTH; i++) {
+            code.append(ALPHABET.charAt(0));
+        }
+        return code.append(checksum)
+                .append(ALPHABET.charAt(store.length()))
+                .append(store)
+                .append(toBase62(messageId))
+                .toString();
+    }
+
+    /**
+     * @param code A tracking code
+     * @return The message and store the code was made for, or null when it is malformed or
+     *         its checksum does not match
+     */
+    public Code decode(String code) {
+        if (code == null || code.length() < CHECKSUM_LENGTH + 2) {
+            return null;
+        }
+        int storeStart = CHECKSUM_LENGTH + 1;
+        int storeLength = ALPHABET.indexOf(code.charAt(CHECKSUM_LENGTH));
+        int messageStart = storeStart + storeLength;
+        if (storeLength < 0 || storeLength > MAX_ID_LENGTH || code.length() <= messageStart
+                || code.length() - messageStart > MAX_ID_LENGTH) {
+            return null;
+        }
+        long checksum = fromBase62(code, 0, CHECKSUM_LENGTH);
+        long storeId = storeLength == 0 ? 0 : fromBase62(code, storeStart, messageStart);
+        long messageId = fromBase62(code, messageStart, code.length());
+        if (checksum < 0 || storeId < 0 || storeId > Integer.MAX_VALUE || messageId <= 0 || messageId > Integer.MAX_VALUE
+                || storeLength > 0 && storeId == 0 || !isCanonical(code, storeStart, messageStart)
+                || !isCanonical(code, messageStart, code.length())) {
+            return null;
+        }
+        if (checksum != checksum((int) messageId, (int) storeId)) {
+            return null;
+        }
+        return new Code((int) messageId, storeLength == 0 ? null : (int) storeId);
+    }
+
+    private long checksum(int messageId, int storeId) {
+        byte[] mac = macs.get().doFinal(ByteBuffer.allocate(2 * Integer.BYTES).putInt(messageId).putInt(storeId).array());
+        return Integer.toUnsignedLong(ByteBuffer.wrap(mac).getInt()) % CHECKSUM_RANGE;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not create tracking code MAC", e);
+        }
+    }
+
+    private static String toBase62(long value) {
+        char[] digits = new char[CHECKSUM_LENGTH + MAX_ID_LENGTH];
+        int position = digits.length;
+        do {
+            digits[--position] = ALPHABET.charAt((int) (value % 62));
+            value /= 62;
+        } while (value > 0);
+        return new String(digits, position, digits.length - position);
+    }
+
+    /**
+     * Only one spelling of each ID is valid, so IDs must not start with a zero
+     */
+    private static boolean isCanonical(String code, int from, int to) {
+        return from == to || code.charAt(from) != ALPHABET.charAt(0);
+    }
+
+    /**
+     * @return The value of code[from, to) in base 62, or -1 when it has other characters or overflows
+     */
+    private static long fromBase62(String code, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = ALPHABET.indexOf(code.charAt(i));
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / 62) {
+                return -1;
+            }
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * The IDs carried by a tracking code; the store ID is null for messages without a store
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Code {
+        private final Integer messageId;
+        private final Integer storeId;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+
+/**
+ * What a tracking code resolves to: the message it was sent in and where a click redirects.
+ * Store and template are null for messages that are not part of any rollup.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TrackingLink {
+    private final Integer messageId;
+    private final Integer storeId;
+    private final Integer templateId;
+    private final LocalDateTime sentAt;
+    private final URI destination;
+}
@@ -0,0 +1,196 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import weka.classifiers.evaluation.NumericPrediction;
+import weka.classifiers.functions.LinearRegression;
+import weka.classifiers.timeseries.WekaForecaster;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forecasts with Weka's TimeSeriesForecasting package, falling back to a plain
+ * linear regression on the day offset when the time series forecaster fails.
+ */
+@Component
+public class WekaForecastingEngine implements ForecastingEngine {
+    private static final Logger logger = LoggerFactory.getLogger(WekaForecastingEngine.class);
+
+    public static final String NAME = "weka";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public double[] forecast(DailyCTRSeries history, int days) {
+        try {
+            // Try to use the advanced time series forecasting if available
+            return forecastUsingTimeSeries(history, days);
+        } catch (Exception e) {
+            logger.warn("Error using time series forecasting, falling back to simple regression: {}", e.getMessage());
+        }
+
+        try {
+            // Fall back to a simpler approach if the time series package is not available
+            return forecastUsingSimpleRegression(history, days);
+        } catch (Exception e) {
+            throw new RuntimeException("Simple regression unavailable", e);
+        }
+    }
+
+    /**
+     * Uses Weka's TimeSeriesForecasting package to predict future CTR values.
+     *
+     * @param history The historical CTR data
+     * @param days    The number of days to predict
+     * @return Predicted CTR per day, day 1 first; NaN where the forecaster gave no prediction
+     */
+    double[] forecastUsingTimeSeries(DailyCTRSeries history, int days) {
+        try {
+            if (history.getObservedDays() == 0) {
+                logger.warn("No historical data provided for time series forecasting");
+                throw new RuntimeException("No historical data available");
+            }
+            
+            // Use the regression data format which uses numeric day offsets instead of date strings
+            // This is more compatible with Weka's forecasting capabilities
+            Instances trainingData = prepareTrainingDataForRegression(history);
+            
+            if (trainingData.isEmpty()) {
+                logger.warn("Empty training dataset created");
+                throw new RuntimeException("Empty training dataset");
+            }
+            
+            // Set up and train the forecaster
+            WekaForecaster forecaster = new WekaForecaster();
+            forecaster.setFieldsToForecast("ctr");
+            
+            // Configure the forecaster for numeric time indicators
+            forecaster.getTSLagMaker().setTimeStampField("day_offset"); // Use day_offset as time indicator
+            forecaster.getTSLagMaker().setMinLag(1);
+            forecaster.getTSLagMaker().setMaxLag(7); // Use up to 7 days of lag
+            
+            // Use linear regression as the base forecaster
+            forecaster.setBaseForecaster(new LinearRegression());
+            
+            // Train with the prepared data
+            logger.info("Building forecaster with {} instances", trainingData.size());
+            forecaster.buildForecaster(trainingData);
+            
+            // Prime the forecaster with the same data used for training
+            logger.info("Priming forecaster with training data");
+            forecaster.primeForecaster(trainingData);
+            
+            // Make forecast
+            logger.info("Forecasting for the next {} days", days);
+            List<List<NumericPrediction>> forecast = forecaster.forecast(days);
+            
+            double[] predictions = new double[days];
+            Arrays.fill(predictions, Double.NaN);
+            boolean anyPrediction = false;
+            
+            for (int i = 0; i < forecast.size() && i < days; i++) {
+                List<NumericPrediction> predsAtStep = forecast.get(i);
+                if (predsAtStep.isEmpty()) {
+                    logger.warn("No prediction available for day {}", i+1);
+                    continue;
+                }
+                
+                NumericPrediction predForTarget = predsAtStep.get(0); // CTR is our only target
+                predictions[i] = predForTarget.predicted();
+                anyPrediction = true;
+            }
+            
+            // If no predictions were generated, throw an exception to fall back to simple regression
+            if (!anyPrediction) {
+                throw new RuntimeException("No predictions generated by forecaster");
+            }
+            
+            return predictions;
+        } catch (Exception e) {
+            logger.warn("Error using time series forecasting: {}", e.getMessage());
+            throw new RuntimeException("Time series forecasting unavailable", e);
+        }
+    }
+
+    /**
+     * Uses a simple linear regression to predict future CTR values.
+     * This is used as a fallback when the time series forecasting package is not available.
+     *
+     * @param history The historical CTR data
+     * @param days    The number of days to predict
+     * @return Predicted CTR per day, day 1 first
+     * @throws Exception if the regression cannot be trained or evaluated
+     */
+    double[] forecastUsingSimpleRegression(DailyCTRSeries history, int days) throws Exception {
+        // Convert historical data to Weka instances for simple regression
+        Instances trainingData = prepareTrainingDataForRegression(history);
+        
+        // Train the linear regression model
+        LinearRegression regression = new LinearRegression();
+        regression.buildClassifier(trainingData);
+        
+        // Make predictions for future days
+        double[] predictions = new double[days];
+        
+        for (int i = 1; i <= days; i++) {
+            // Create test instance
+            Instance testInstance = new DenseInstance(2);
+            testInstance.setValue(0, i); // Day offset
+            
+            // Set dataset for the instance
+            testInstance.setDataset(trainingData);
+            
+            // Make prediction
+            predictions[i - 1] = regression.classifyInstance(testInstance);
+        }
+        
+        return predictions;
+    }
+
+    /**
+     * Prepares Weka instances from historical CTR data for simple regression.
+     * Uses the day offset from the start of the history as feature; days without sends are left out.
+     *
+     * @param history The historical CTR data
+     * @return Weka instances for training simple regression
+     */
+    private Instances prepareTrainingDataForRegression(DailyCTRSeries history) {
+        // Define attributes for the dataset
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("day_offset"));
+        attributes.add(new Attribute("ctr"));
+        
+        // Create dataset with attributes
+        Instances dataset = new Instances("CTRRegressionData", attributes, history.getObservedDays());
+        dataset.setClass(attributes.get(1)); // Set CTR as the class attribute
+        
+        double[] values = history.getValues();
+        for (int dayOffset = 0; dayOffset < values.length; dayOffset++) {
+            if (Double.isNaN(values[dayOffset])) {
+                continue;
+            }
+            
+            // Create instance with proper dataset reference
+            Instance instance = new DenseInstance(2);
+            // Set dataset first
+            instance.setDataset(dataset);
+            // Then set values
+            instance.setValue(0, dayOffset);
+            instance.setValue(1, values[dayOffset]);
+            
+            dataset.add(instance);
+        }
+        
+        return dataset;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreAnalyticsSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldWriteTheDashboardShape() throws JsonProcessingException {
+        // Given
+        StoreAnalyticsDTO analytics = new StoreAnalyticsDTO();
+        analytics.setTotalMessages(100);
+        analytics.setTotalClicks(25);
+        analytics.setClickThroughRate(0.25);
+        analytics.setYears(new int[]{2023, 2023});
+        analytics.setMonths(new int[]{1, 2});
+        analytics.setMessagesByMonth(new long[]{40, 60});
+        analytics.setClicksByMonth(new long[]{0, 25});
+        analytics.setTemplateIds(new int[]{101, 102});
+        analytics.setMessagesByTemplate(new long[]{100, 0});
+        analytics.setClicksByTemplate(new long[]{20, 5});
+        analytics.setCtrByTemplate(new double[]{0.2, 0});
+
+        // When
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(analytics));
+
+        // Then
+        assertEquals(100, json.get("totalMessages").asLong(), "Total messages should match");
+        assertEquals(0.25, json.get("clickThroughRate").asDouble(), "CTR should match");
+        assertEquals(2, json.get("messagesByMonth").size(), "Both months have messages");
+        assertEquals(1, json.get("messagesByMonth").get(0).get("month").asInt(), "First month should be January");
+        assertEquals(2023, json.get("messagesByMonth").get(0).get("year").asInt(), "Year should match");
+        assertEquals(40, json.get("messagesByMonth").get(0).get("count").asLong(), "January count should match");
+        assertEquals(1, json.get("clicksByMonth").size(), "Months without clicks should be left out");
+        assertEquals(100, json.get("messagesByTemplate").get("101").asLong(), "Template counts should be keyed by ID");
+        assertFalse(json.get("messagesByTemplate").has("102"), "Templates without sends should be left out");
+        assertEquals(5, json.get("clicksByTemplate").get("102").asLong(), "Clicks should be reported per template");
+        assertEquals(0.2, json.get("ctrByTemplate").get("101").asDouble(), "Template CTR should match");
+        assertFalse(json.get("ctrByTemplate").has("102"), "CTR is only reported for templates with sends");
+    }
+
+    @Test
+    void shouldWriteSeriesWithIsoTimestamps() throws JsonProcessingException {
+        // Given
+        ActivitySeriesDTO series = new ActivitySeriesDTO();
+        series.setStoreId(1);
+        series.setGranularity("day");
+        series.setFrom(LocalDateTime.of(2023, 1, 1, 0, 0));
+        series.setTo(LocalDateTime.of(2023, 1, 3, 0, 0));
+        series.setBuckets(new LocalDateTime[]{LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 2, 0, 0)});
+        series.setSends(new long[]{4, 0});
+        series.setClicks(new long[]{1, 0});
+        series.setClickThroughRate(new double[]{0.25, 0});
+
+        // When
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(series));
+
+        // Then
+        assertEquals("2023-01-01T00:00:00", json.get("from").asText(), "From should be ISO-8601");
+        assertEquals("2023-01-02T00:00:00", json.get("buckets").get(1).asText(), "Buckets should be ISO-8601");
+        assertEquals(4, json.get("sends").get(0).asLong(), "Sends should match");
+        assertEquals(0.25, json.get("clickThroughRate").get(0).asDouble(), "CTR should match");
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsQueryExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shouldRunSubmittedQueriesConcurrently() {
+        // Given
+        AnalyticsQueryExecutor queryExecutor = new AnalyticsQueryExecutor(pool, true);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        // When - each query waits until the other one has started
+        CompletableFuture<Boolean> first = queryExecutor.submit("first", () -> awaitOther(bothStarted));
+        CompletableFuture<Boolean> second = queryExecutor.submit("second", () -> awaitOther(bothStarted));
+
+        // Then
+        assertTrue(AnalyticsQueryExecutor.join(first), "First query should see the second one running");
+        assertTrue(AnalyticsQueryExecutor.join(second), "Second query should see the first one running");
+    }
+
+    @Test
+    void shouldRecordTimingsPerQuery() {
+        // Given
+        AnalyticsQueryExecutor queryExecutor = new AnalyticsQueryExecutor(pool, false);
+
+        // When
+        queryExecutor.run("storeSummary", () -> 1);
+        queryExecutor.run("storeSummary", () -> 2);
+        AnalyticsQueryExecutor.join(queryExecutor.submit("recentSends", () -> 3L));
+
+        // Then
+        Map<String, Map<String, Object>> timings = queryExecutor.getTimings();
+        assertEquals(2L, timings.get("storeSummary").get("count"), "Both summary calls should be counted");
+        assertEquals(1L, timings.get("recentSends").get("count"), "Sequential submits should be timed too");
+    }
+
+    @Test
+    void shouldRethrowQueryFailureUnwrapped() {
+        // Given
+        AnalyticsQueryExecutor queryExecutor = new AnalyticsQueryExecutor(pool, true);
+
+        // When
+        CompletableFuture<Object> failing = queryExecutor.submit("failing", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        // Then
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> AnalyticsQueryExecutor.join(failing));
+        assertEquals("boom", e.getMessage(), "Original exception should be rethrown");
+        assertEquals(1L, queryExecutor.getTimings().get("failing").get("count"), "Failed queries should be timed");
+    }
+
+    private static boolean awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        try {
+            return bothStarted.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,22 +1,32 @@
 package org.example.service;
 
+import org.example.dto.ActivitySeriesDTO;
+import org.example.dto.OrganizationAnalyticsDTO;
+import org.example.dto.RecentAnalyticsDTO;
+import org.example.dto.StoreAnalyticsDTO;
+import org.example.dto.StoreTimeToClickDTO;
 import org.example.repository.LinkClickRepository;
 import org.example.repository.SentTextMessageRepository;
+import org.example.repository.StoreRepository;
+import org.example.repository.StoreTemplateDailyStatsRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +38,21 @@ class AnalyticsServiceTest {
     @Mock
     private LinkClickRepository linkClickRepository;
 
+    @Mock
+    private StoreTemplateDailyStatsRepository dailyStatsRepository;
+
+    @Mock
+    private RecentActivityCounters recentActivityCounters;
+
+    @Mock
+    private TimeToClickHistograms timeToClickHistograms;
+
+    @Mock
+    private StoreRepository storeRepository;
+
+    @Spy
+    private AnalyticsQueryExecutor queryExecutor = new AnalyticsQueryExecutor(Runnable::run, true);
+
     @InjectMocks
     private AnalyticsService analyticsService;
 
@@ -43,59 +68,37 @@ class AnalyticsServiceTest {
         // Given
         Long totalMessages = 100L;
         Long totalClicks = 25L;
-        double expectedCtr = 25.0; // 25/100 * 100 = 25%
-
-        // Monthly data
-        Object[] janMessages = new Object[]{1, 2023, 40L};
-        Object[] febMessages = new Object[]{2, 2023, 60L};
-        List<Object[]> messagesByMonth = Arrays.asList(janMessages, febMessages);
-
-        Object[] janClicks = new Object[]{1, 2023, 10L};
-        Object[] febClicks = new Object[]{2, 2023, 15L};
-        List<Object[]> clicksByMonth = Arrays.asList(janClicks, febClicks);
-
-        // Template data
-        Object[] template1Messages = new Object[]{101, 70L};
-        Object[] template2Messages = new Object[]{102, 30L};
-        List<Object[]> messagesByTemplate = Arrays.asList(template1Messages, template2Messages);
+        double expectedCtr = 0.25; // 25/100
 
-        Object[] template1Clicks = new Object[]{101, 15L};
-        Object[] template2Clicks = new Object[]{102, 10L};
-        List<Object[]> clicksByTemplate = Arrays.asList(template1Clicks, template2Clicks);
+        // Rows from the grouping-sets summary: {kind, year, month, templateId, sends, clicks}
+        List<Object[]> summary = Arrays.asList(
+                new Object[]{"month", 2023, 1, null, 40L, 10L},
+                new Object[]{"month", 2023, 2, null, 60L, 15L},
+                new Object[]{"template", null, null, 101, 70L, 15L},
+                new Object[]{"template", null, null, 102, 30L, 10L},
+                new Object[]{"total", null, null, null, totalMessages, totalClicks});
 
         // Mock repository responses
-        when(sentTextMessageRepository.countMessagesByStore(STORE_ID)).thenReturn(totalMessages);
-        when(linkClickRepository.countClicksByStore(STORE_ID)).thenReturn(totalClicks);
-        when(sentTextMessageRepository.countMessagesByMonth(STORE_ID)).thenReturn(messagesByMonth);
-        when(linkClickRepository.countClicksByMonth(STORE_ID)).thenReturn(clicksByMonth);
-        when(sentTextMessageRepository.countMessagesByTemplate(STORE_ID)).thenReturn(messagesByTemplate);
-        when(linkClickRepository.countClicksByTemplate(STORE_ID)).thenReturn(clicksByTemplate);
+        when(dailyStatsRepository.summarizeStore(STORE_ID)).thenReturn(summary);
 
         // When
-        Map<String, Object> analytics = analyticsService.getStoreAnalytics(STORE_ID);
+        StoreAnalyticsDTO analytics = analyticsService.getStoreAnalytics(STORE_ID);
 
         // Then
-        assertEquals(totalMessages, analytics.get("totalMessages"), "Total messages should match");
-        assertEquals(totalClicks, analytics.get("totalClicks"), "Total clicks should match");
-        assertEquals(expectedCtr, analytics.get("clickThroughRate"), "CTR should match");
-
-        // Verify messagesByMonth
-        List<Map<String, Object>> resultMessagesByMonth = (List<Map<String, Object>>) analytics.get("messagesByMonth");
-        assertEquals(2, resultMessagesByMonth.size(), "Should have 2 months of message data");
-        assertEquals(1, resultMessagesByMonth.get(0).get("month"), "First month should be January");
-        assertEquals(40L, resultMessagesByMonth.get(0).get("count"), "January message count should match");
-
-        // Verify clicksByMonth
-        List<Map<String, Object>> resultClicksByMonth = (List<Map<String, Object>>) analytics.get("clicksByMonth");
-        assertEquals(2, resultClicksByMonth.size(), "Should have 2 months of click data");
-        assertEquals(1, resultClicksByMonth.get(0).get("month"), "First month should be January");
-        assertEquals(10L, resultClicksByMonth.get(0).get("count"), "January click count should match");
+        assertEquals(totalMessages, analytics.getTotalMessages(), "Total messages should match");
+        assertEquals(totalClicks, analytics.getTotalClicks(), "Total clicks should match");
+        assertEquals(expectedCtr, analytics.getClickThroughRate(), "CTR should match");
+
+        // Verify the monthly series
+        assertArrayEquals(new int[]{1, 2}, analytics.getMonths(), "Months should be January and February");
+        assertArrayEquals(new int[]{2023, 2023}, analytics.getYears(), "Years should match");
+        assertArrayEquals(new long[]{40L, 60L}, analytics.getMessagesByMonth(), "Monthly message counts should match");
+        assertArrayEquals(new long[]{10L, 15L}, analytics.getClicksByMonth(), "Monthly click counts should match");
 
         // Verify CTR by template
-        Map<Integer, Double> ctrByTemplate = (Map<Integer, Double>) analytics.get("ctrByTemplate");
-        assertEquals(2, ctrByTemplate.size(), "Should have CTR for 2 templates");
-        assertEquals(21.43, ctrByTemplate.get(101), 0.01, "Template 101 CTR should be 21.43%");
-        assertEquals(33.33, ctrByTemplate.get(102), 0.01, "Template 102 CTR should be 33.33%");
+        assertArrayEquals(new int[]{101, 102}, analytics.getTemplateIds(), "Should have 2 templates");
+        assertEquals(0.2143, analytics.getCtrByTemplate()[0], 0.0001, "Template 101 CTR should be 21.43%");
+        assertEquals(0.3333, analytics.getCtrByTemplate()[1], 0.0001, "Template 102 CTR should be 33.33%");
     }
 
     @Test
@@ -104,40 +107,160 @@ class AnalyticsServiceTest {
         int days = 7;
         Long recentMessages = 42L;
         
-        // Mock repository responses
+        // Mock repository responses (counters not seeded yet, so the database is used)
         when(sentTextMessageRepository.countMessagesByStoreAndDateRange(
                 eq(STORE_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
                 .thenReturn(recentMessages);
+        when(linkClickRepository.countClicksByStoreAndDateRange(
+                eq(STORE_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(21L);
+
+        // When
+        RecentAnalyticsDTO analytics = analyticsService.getRecentAnalytics(STORE_ID, days);
+
+        // Then
+        assertEquals("7 days", analytics.getPeriod(), "Period should match");
+        assertEquals(recentMessages, analytics.getRecentMessages(), "Recent messages count should match");
+        assertEquals(21L, analytics.getRecentClicks(), "Recent clicks count should match");
+        assertEquals(0.5, analytics.getClickThroughRate(), "Recent CTR should match");
+    }
+
+    @Test
+    void testGetRecentAnalyticsFromCounters() {
+        // Given
+        when(recentActivityCounters.getTotals(STORE_ID, 7)).thenReturn(new long[]{40L, 10L});
 
         // When
-        Map<String, Object> analytics = analyticsService.getRecentAnalytics(STORE_ID, days);
+        RecentAnalyticsDTO analytics = analyticsService.getRecentAnalytics(STORE_ID, 7);
 
         // Then
-        assertEquals("7 days", analytics.get("period"), "Period should match");
-        assertEquals(recentMessages, analytics.get("recentMessages"), "Recent messages count should match");
+        assertEquals(40L, analytics.getRecentMessages(), "Recent messages should come from the counters");
+        assertEquals(10L, analytics.getRecentClicks(), "Recent clicks should come from the counters");
+        verifyNoInteractions(sentTextMessageRepository, linkClickRepository);
     }
 
     @Test
     void testGetStoreAnalyticsWithNoData() {
         // Given
-        when(sentTextMessageRepository.countMessagesByStore(STORE_ID)).thenReturn(0L);
-        when(linkClickRepository.countClicksByStore(STORE_ID)).thenReturn(0L);
-        when(sentTextMessageRepository.countMessagesByMonth(STORE_ID)).thenReturn(List.of());
-        when(linkClickRepository.countClicksByMonth(STORE_ID)).thenReturn(List.of());
-        when(sentTextMessageRepository.countMessagesByTemplate(STORE_ID)).thenReturn(List.of());
-        when(linkClickRepository.countClicksByTemplate(STORE_ID)).thenReturn(List.of());
+        List<Object[]> summary = List.<Object[]>of(new Object[]{"total", null, null, null, 0L, 0L});
+        when(dailyStatsRepository.summarizeStore(STORE_ID)).thenReturn(summary);
+
+        // When
+        StoreAnalyticsDTO analytics = analyticsService.getStoreAnalytics(STORE_ID);
+
+        // Then
+        assertEquals(0L, analytics.getTotalMessages(), "Total messages should be 0");
+        assertEquals(0L, analytics.getTotalClicks(), "Total clicks should be 0");
+        assertEquals(0.0, analytics.getClickThroughRate(), "CTR should be 0");
+        assertEquals(0, analytics.getMonths().length, "Monthly series should be empty");
+        assertEquals(0, analytics.getMessagesByMonth().length, "Message by month should be empty");
+        assertEquals(0, analytics.getTemplateIds().length, "Template series should be empty");
+        assertEquals(0, analytics.getCtrByTemplate().length, "CTR by template should be empty");
+    }
+
+    @Test
+    void testGetOrganizationAnalytics() {
+        // Given
+        Integer organizationId = 7;
+
+        // Rows from the organization summary: {kind, storeId, storeName, year, month, sends, clicks}
+        List<Object[]> summary = Arrays.asList(
+                new Object[]{"store", 1, "Downtown", null, null, 80L, 20L},
+                new Object[]{"store", 2, "Uptown", null, null, 20L, 10L},
+                new Object[]{"store", 3, "New Store", null, null, 0L, 0L},
+                new Object[]{"month", null, null, null, null, 0L, 0L},
+                new Object[]{"month", null, null, 2023, 1, 100L, 25L},
+                new Object[]{"month", null, null, 2023, 2, 0L, 5L});
+
+        when(dailyStatsRepository.summarizeOrganization(organizationId)).thenReturn(summary);
+
+        // When
+        OrganizationAnalyticsDTO analytics = analyticsService.getOrganizationAnalytics(organizationId);
+
+        // Then
+        assertEquals(100L, analytics.getTotalMessages(), "Total messages should be summed across stores");
+        assertEquals(30L, analytics.getTotalClicks(), "Total clicks should be summed across stores");
+        assertEquals(0.3, analytics.getClickThroughRate(), 0.0001, "Organization CTR should match");
+
+        assertEquals(3, analytics.getStores().size(), "Should include stores without activity");
+        assertEquals(0.25, analytics.getStores().get(0).getClickThroughRate(), 0.0001, "Store 1 CTR should match");
+        assertEquals(0.0, analytics.getStores().get(2).getClickThroughRate(), "Store without messages should have 0 CTR");
+
+        assertEquals(1, analytics.getMessagesByMonth().size(), "Only months with messages should be listed");
+        assertEquals(2, analytics.getClicksByMonth().size(), "Only months with clicks should be listed");
+        assertEquals(5L, analytics.getClicksByMonth().get(1).getCount(), "February click count should match");
+    }
+
+    @Test
+    void testGetDailySeriesIsZeroFilled() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 15, 30);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 5, 0, 0);
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{Timestamp.valueOf("2024-03-01 00:00:00"), 10L, 2L},
+                new Object[]{Timestamp.valueOf("2024-03-04 00:00:00"), 5L, 0L});
+
+        when(dailyStatsRepository.countActivityByBucket(
+                STORE_ID, "day", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 5)))
+                .thenReturn(rows);
+
+        // When
+        ActivitySeriesDTO series = analyticsService.getActivitySeries(STORE_ID, TimeGranularity.DAY, from, to);
+
+        // Then
+        assertEquals(4, series.getBuckets().length, "Should have one bucket per day");
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), series.getBuckets()[0], "First bucket should be truncated");
+        assertArrayEquals(new long[]{10L, 0L, 0L, 5L}, series.getSends(), "Sends should be zero-filled");
+        assertArrayEquals(new long[]{2L, 0L, 0L, 0L}, series.getClicks(), "Clicks should be zero-filled");
+        assertEquals(0.2, series.getClickThroughRate()[0], 0.0001, "CTR should be computed per bucket");
+    }
+
+    @Test
+    void testGetHourlySeriesReadsRawTables() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 9, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+        when(sentTextMessageRepository.countMessagesByBucket(STORE_ID, "hour", from, to))
+                .thenReturn(List.<Object[]>of(new Object[]{Timestamp.valueOf("2024-03-01 10:00:00"), 100L}));
+        when(linkClickRepository.countClicksByBucket(STORE_ID, "hour", from, to))
+                .thenReturn(List.<Object[]>of(new Object[]{Timestamp.valueOf("2024-03-01 11:00:00"), 7L}));
+
+        // When
+        ActivitySeriesDTO series = analyticsService.getActivitySeries(STORE_ID, TimeGranularity.HOUR, from, to);
+
+        // Then
+        assertArrayEquals(new long[]{0L, 100L, 0L}, series.getSends(), "Sends should land in the 10:00 bucket");
+        assertArrayEquals(new long[]{0L, 0L, 7L}, series.getClicks(), "Clicks should land in the 11:00 bucket");
+    }
+
+    @Test
+    void testGetSeriesRejectsTooManyBuckets() {
+        LocalDateTime to = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime from = to.minusYears(5);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getActivitySeries(STORE_ID, TimeGranularity.HOUR, from, to));
+    }
+
+    @Test
+    void testGetStoreTimeToClickFromDatabase() {
+        // Given - histograms not seeded yet; rows are {storeId, templateId, bucket, count}
+        when(timeToClickHistograms.getHistograms(List.of(STORE_ID))).thenReturn(null);
+        when(linkClickRepository.countTimeToClickBucketsByStores(List.of(STORE_ID))).thenReturn(Arrays.asList(
+                new Object[]{STORE_ID, 101, LatencyHistogram.bucketOf(30), 6L},
+                new Object[]{STORE_ID, 101, LatencyHistogram.bucketOf(3600), 3L},
+                new Object[]{STORE_ID, 102, LatencyHistogram.bucketOf(86400), 1L}));
 
         // When
-        Map<String, Object> analytics = analyticsService.getStoreAnalytics(STORE_ID);
+        StoreTimeToClickDTO timeToClick = analyticsService.getStoreTimeToClick(STORE_ID);
 
         // Then
-        assertEquals(0L, analytics.get("totalMessages"), "Total messages should be 0");
-        assertEquals(0L, analytics.get("totalClicks"), "Total clicks should be 0");
-        assertEquals(0.0, analytics.get("clickThroughRate"), "CTR should be 0");
-        assertTrue(((List<?>) analytics.get("messagesByMonth")).isEmpty(), "Message by month should be empty");
-        assertTrue(((List<?>) analytics.get("clicksByMonth")).isEmpty(), "Clicks by month should be empty");
-        assertTrue(((Map<?, ?>) analytics.get("messagesByTemplate")).isEmpty(), "Messages by template should be empty");
-        assertTrue(((Map<?, ?>) analytics.get("clicksByTemplate")).isEmpty(), "Clicks by template should be empty");
-        assertTrue(((Map<?, ?>) analytics.get("ctrByTemplate")).isEmpty(), "CTR by template should be empty");
+        assertEquals(10, timeToClick.getOverall().getTotalClicks(), "All clicks should be counted");
+        assertEquals(30, timeToClick.getOverall().getP50Seconds(), 30 * 0.2, "Median should be about 30 seconds");
+        assertEquals(3600, timeToClick.getOverall().getP90Seconds(), 3600 * 0.2, "p90 should be about an hour");
+        assertEquals(86400, timeToClick.getOverall().getP99Seconds(), 86400 * 0.2, "p99 should be about a day");
+        assertEquals(9, timeToClick.getByTemplate().get(101).getTotalClicks(), "Template 101 should have 9 clicks");
+        assertEquals(1, timeToClick.getByTemplate().get(102).getTotalClicks(), "Template 102 should have 1 click");
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package org.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BootstrapIntervalsTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldBracketTheForecastWithWiderIntervalsForNoisierHistory() {
+        // Given
+        BootstrapIntervals intervals = new BootstrapIntervals(pool, 500, 0.9, 1);
+        DailyCTRSeries calm = history(0.01, 60);
+        DailyCTRSeries noisy = history(0.05, 60);
+
+        // When
+        double[][] calmOffsets = intervals.offsets(calm, 30);
+        double[][] noisyOffsets = intervals.offsets(noisy, 30);
+
+        // Then
+        for (int day = 0; day < 30; day++) {
+            assertTrue(calmOffsets[0][day] < 0 && calmOffsets[1][day] > 0, "Interval should contain the forecast");
+        }
+        double calmWidth = calmOffsets[1][0] - calmOffsets[0][0];
+        double noisyWidth = noisyOffsets[1][0] - noisyOffsets[0][0];
+        assertTrue(noisyWidth > 3 * calmWidth, "Five times the noise should give much wider intervals");
+        assertEquals(2 * 1.645 * 0.05, noisyWidth, 0.05, "A 90% interval should span about 3.3 standard deviations");
+    }
+
+    @Test
+    void shouldGiveTheSameIntervalsForTheSameSeed() {
+        // Given
+        DailyCTRSeries series = history(0.02, 40);
+
+        // When
+        double[][] first = new BootstrapIntervals(pool, 200, 0.8, 7).offsets(series, 10);
+        double[][] second = new BootstrapIntervals(pool, 200, 0.8, 7).offsets(series, 10);
+
+        // Then
+        assertArrayEquals(first[0], second[0], "Lower bounds should be reproducible");
+        assertArrayEquals(first[1], second[1], "Upper bounds should be reproducible");
+    }
+
+    @Test
+    void shouldSkipHistoriesThatAreTooShort() {
+        BootstrapIntervals intervals = new BootstrapIntervals(pool, 100, 0.9, 0);
+
+        assertNull(intervals.offsets(history(0.01, 2), 7), "Two days are not enough to resample residuals");
+        assertThrows(IllegalArgumentException.class, () -> new BootstrapIntervals(pool, 100, 1.5, 0),
+                "Confidence must be a fraction");
+    }
+
+    private static DailyCTRSeries history(double noise, int days) {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.now().minusDays(days);
+        DailyCTRSeries.Builder builder = new DailyCTRSeries.Builder();
+        for (int day = 0; day < days; day++) {
+            double ctr = 0.2 + random.nextGaussian() * noise;
+            builder.add(start.plusDays(day), 100_000, Math.round(ctr * 100_000));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.service;
+
+import org.example.dto.BulkMessageDTO;
+import org.example.dto.BulkSendRequestDTO;
+import org.example.dto.BulkSendResultDTO;
+import org.example.repository.SentTextMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkSendServiceTest {
+
+    @Mock
+    private SentTextMessageRepository sentTextMessageRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private MessageActivityService messageActivityService;
+
+    private final TrackingCodes trackingCodes = new TrackingCodes("test-secret");
+
+    private BulkSendService bulkSendService;
+
+    private final Integer STORE_ID = 1;
+    private final Integer TEMPLATE_ID = 101;
+
+    @BeforeEach
+    void setUp() {
+        bulkSendService = new BulkSendService(sentTextMessageRepository, jdbcTemplate, messageActivityService, trackingCodes, 2);
+    }
+
+    @Test
+    void shouldInsertWithAllocatedIdsAndReturnTrackingCodes() {
+        // Given
+        BulkSendRequestDTO request = request(
+                new BulkMessageDTO(11, "Hi", "https://example.com/a", LocalDateTime.of(2024, 3, 15, 9, 5)),
+                new BulkMessageDTO(null, "Hello", "https://example.com/b", LocalDateTime.of(2024, 3, 15, 9, 40)),
+                new BulkMessageDTO(13, "Hey", "https://example.com/c", LocalDateTime.of(2024, 3, 15, 10, 0)));
+        when(sentTextMessageRepository.allocateIds(3)).thenReturn(List.of(500L, 501L, 502L));
+
+        // When
+        BulkSendResultDTO result = bulkSendService.recordSends(request);
+
+        // Then
+        assertEquals(List.of(500, 501, 502), result.getIds(), "IDs should be the allocated ones in request order");
+        for (int i = 0; i < 3; i++) {
+            TrackingCodes.Code code = trackingCodes.decode(result.getTrackingCodes().get(i));
+            assertNotNull(code, "Tracking code should decode");
+            assertEquals(result.getIds().get(i), code.getMessageId(), "Tracking code should carry the message ID");
+            assertEquals(STORE_ID, code.getStoreId(), "Tracking code should carry the store ID");
+        }
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO sent_text_message"), argThat((Collection<?> rows) -> rows.size() == 3),
+                eq(2), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldBindMessageColumns() throws Exception {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 15, 9, 5);
+        BulkSendRequestDTO request = request(new BulkMessageDTO(null, "Hello", "https://example.com/b", sentAt));
+        when(sentTextMessageRepository.allocateIds(1)).thenReturn(List.of(500L));
+        bulkSendService.recordSends(request);
+        ArgumentCaptor<Collection<Object>> rows = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setter = ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), anyInt(), setter.capture());
+        PreparedStatement ps = mock(PreparedStatement.class);
+
+        // When
+        setter.getValue().setValues(ps, rows.getValue().iterator().next());
+
+        // Then
+        verify(ps).setInt(1, 500);
+        verify(ps).setInt(2, STORE_ID);
+        verify(ps).setNull(3, Types.INTEGER);
+        verify(ps).setInt(4, TEMPLATE_ID);
+        verify(ps).setString(5, "Hello");
+        verify(ps).setTimestamp(6, Timestamp.valueOf(sentAt));
+        verify(ps).setString(7, "https://example.com/b");
+    }
+
+    @Test
+    void shouldRecordActivityOncePerHour() {
+        // Given
+        BulkSendRequestDTO request = request(
+                new BulkMessageDTO(11, "Hi", "https://example.com/a", LocalDateTime.of(2024, 3, 15, 9, 5)),
+                new BulkMessageDTO(12, "Hi", "https://example.com/a", LocalDateTime.of(2024, 3, 15, 9, 40)),
+                new BulkMessageDTO(13, "Hi", "https://example.com/a", LocalDateTime.of(2024, 3, 15, 10, 0)));
+        when(sentTextMessageRepository.allocateIds(3)).thenReturn(List.of(1L, 2L, 3L));
+
+        // When
+        bulkSendService.recordSends(request);
+
+        // Then
+        verify(messageActivityService).recordMessagesSent(STORE_ID, TEMPLATE_ID, LocalDateTime.of(2024, 3, 15, 9, 0), 2L);
+        verify(messageActivityService).recordMessagesSent(STORE_ID, TEMPLATE_ID, LocalDateTime.of(2024, 3, 15, 10, 0), 1L);
+        verifyNoMoreInteractions(messageActivityService);
+    }
+
+    @Test
+    void shouldFailWhenSequenceReturnsTooFewIds() {
+        // Given
+        BulkSendRequestDTO request = request(
+                new BulkMessageDTO(11, "Hi", "https://example.com/a", null),
+                new BulkMessageDTO(12, "Hi", "https://example.com/a", null));
+        when(sentTextMessageRepository.allocateIds(2)).thenReturn(List.of(1L));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> bulkSendService.recordSends(request),
+                "Should not insert messages without an ID each");
+        verifyNoInteractions(jdbcTemplate, messageActivityService);
+    }
+
+    private BulkSendRequestDTO request(BulkMessageDTO... messages) {
+        BulkSendRequestDTO request = new BulkSendRequestDTO();
+        request.setStoreId(STORE_ID);
+        request.setTemplateId(TEMPLATE_ID);
+        request.setMessages(new ArrayList<>(List.of(messages)));
+        return request;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CTRForecastModelFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadBackSavedModels() throws Exception {
+        // Given
+        Path file = directory.resolve("models.bin");
+        CTRForecastModel model = model(7, 0.125, LocalDateTime.now().withNano(0));
+        new CTRForecastModelFileStore(file.toString()).save(List.of(model, model(3, 0.25, LocalDateTime.now())));
+
+        // When - a new store maps the file, as after a restart
+        CTRForecastModelFileStore restarted = new CTRForecastModelFileStore(file.toString());
+        CTRForecastModel loaded = restarted.load(7);
+
+        // Then
+        assertNotNull(loaded, "Saved model should be found");
+        assertEquals("holt-winters", loaded.getMethod(), "Method should be restored");
+        assertEquals(model.getLastDataDate(), loaded.getLastDataDate(), "Last data date should be restored");
+        assertEquals(model.getTrainedAt(), loaded.getTrainedAt(), "Training time should be restored");
+        assertArrayEquals(model.forecast(5), loaded.forecast(5), 1e-6, "Forecast should be restored");
+        assertNull(restarted.load(5), "Stores without a saved model should not be found");
+    }
+
+    @Test
+    void shouldKeepSavedModelsOfOtherStores() throws Exception {
+        // Given
+        Path file = directory.resolve("models.bin");
+        CTRForecastModelFileStore store = new CTRForecastModelFileStore(file.toString());
+        store.save(List.of(model(1, 0.1, LocalDateTime.now()), model(2, 0.2, LocalDateTime.now())));
+
+        // When
+        store.save(List.of(model(2, 0.3, LocalDateTime.now()), model(4, 0.4, LocalDateTime.now())));
+
+        // Then
+        assertEquals(0.1, store.load(1).forecast(1)[0], 1e-6, "Store 1 should be kept from the earlier save");
+        assertEquals(0.3, store.load(2).forecast(1)[0], 1e-6, "Store 2 should be replaced");
+        assertEquals(0.4, store.load(4).forecast(1)[0], 1e-6, "Store 4 should be added");
+    }
+
+    @Test
+    void shouldIgnoreFilesOfAnotherFormat() throws Exception {
+        Path file = directory.resolve("models.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+
+        assertNull(new CTRForecastModelFileStore(file.toString()).load(1), "Unknown files should be ignored");
+        assertNull(new CTRForecastModelFileStore("").load(1), "An empty path should disable the store");
+    }
+
+    @Test
+    void shouldServeSavedModelWarmAndRetrainItInTheBackground() throws Exception {
+        // Given - a model trained yesterday was saved before the restart
+        Path file = directory.resolve("models.bin");
+        new CTRForecastModelFileStore(file.toString()).save(List.of(model(1, 0.1, LocalDateTime.now().minusDays(1))));
+        CTRForecastModelCache cache = new CTRForecastModelCache(10, Duration.ofHours(1), Runnable::run,
+                new CTRForecastModelFileStore(file.toString()));
+        AtomicInteger trained = new AtomicInteger();
+
+        // When
+        CTRForecastModel first = cache.get(1, id -> {
+            trained.incrementAndGet();
+            return model(id, 0.2, LocalDateTime.now());
+        });
+        CTRForecastModel second = cache.get(1, id -> fail("Model should be cached"));
+
+        // Then
+        assertEquals(0.1, first.forecast(1)[0], 1e-6, "The saved model should be served right away");
+        assertEquals(1, trained.get(), "The saved model should be retrained once because it is from an earlier day");
+        assertEquals(0.2, second.forecast(1)[0], 1e-6, "The retrained model should replace it");
+    }
+
+    @Test
+    void shouldServeSavedModelFromToday() throws Exception {
+        // Given - a model whose day-n forecast is n, saved three days ago
+        Path file = directory.resolve("models.bin");
+        double[] ramp = new double[30];
+        Arrays.setAll(ramp, day -> day + 1);
+        LocalDateTime trainedAt = LocalDateTime.now().minusDays(3);
+        new CTRForecastModelFileStore(file.toString()).save(List.of(
+                new CTRForecastModel(1, "holt-winters", ramp, trainedAt.toLocalDate(), trainedAt),
+                model(2, 0.1, LocalDateTime.now().minusDays(40))));
+        CTRForecastModelCache cache = new CTRForecastModelCache(10, Duration.ofHours(1), command -> { },
+                new CTRForecastModelFileStore(file.toString()));
+
+        // When
+        CTRForecastModel restored = cache.get(1, id -> fail("The saved model should be served"));
+        CTRForecastModel expired = cache.get(2, id -> model(id, 0.2, LocalDateTime.now()));
+
+        // Then
+        assertArrayEquals(new double[]{4, 5}, restored.forecastFrom(LocalDate.now(), 2), 1e-6,
+                "Tomorrow is day 4 of a forecast made three days ago");
+        assertEquals(27, restored.forecastFrom(LocalDate.now(), 100).length, "The forecast should end with its horizon");
+        assertEquals(0.2, expired.forecastFrom(LocalDate.now(), 1)[0], 1e-6,
+                "A saved model past its horizon should be trained again instead");
+    }
+
+    private static CTRForecastModel model(int storeId, double ctr, LocalDateTime trainedAt) {
+        double[] forecast = new double[30];
+        Arrays.fill(forecast, ctr);
+        return new CTRForecastModel(storeId, "holt-winters", forecast, LocalDate.of(2024, 3, storeId), trainedAt);
+    }
+}
@@ -1,20 +1,31 @@
 package org.example.service;
 
-import org.example.model.LinkClick;
-import org.example.model.SentTextMessage;
-import org.example.repository.LinkClickRepository;
-import org.example.repository.SentTextMessageRepository;
+import org.example.dto.CTRPredictionDTO;
+import org.example.model.Store;
+import org.example.repository.StoreTemplateDailyStatsRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.time.LocalDateTime;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,57 +34,63 @@ import static org.mockito.Mockito.*;
 class CTRPredictionServiceTest {
 
     @Mock
-    private LinkClickRepository linkClickRepository;
+    private StoreTemplateDailyStatsRepository dailyStatsRepository;
+
+    @Spy
+    private CTRForecastModelCache forecastModelCache = new CTRForecastModelCache(10, Duration.ofHours(1), Runnable::run,
+            new CTRForecastModelFileStore(""));
 
     @Mock
-    private SentTextMessageRepository sentTextMessageRepository;
+    private CTRForecastStore forecastStore;
+
+    @Spy
+    private ForecastingEngines forecastingEngines = new ForecastingEngines(
+            List.of(new WekaForecastingEngine(), new HoltWintersForecastingEngine(), new OnlineForecastingEngine(0.97, 10)),
+            WekaForecastingEngine.NAME);
 
     @InjectMocks
     private CTRPredictionService ctrPredictionService;
 
     private final Long STORE_ID = 1L;
-    private List<SentTextMessage> messages;
-    private List<LinkClick> clicks;
+    private List<Object[]> dailyActivity;
 
     @BeforeEach
     void setUp() {
-        messages = new ArrayList<>();
-        clicks = new ArrayList<>();
-
-        // Create test data for past 30 days
-        LocalDateTime now = LocalDateTime.now();
-
-        // Create 4 messages for each of the past 12 days (48 total messages)
-        for (int i = 0; i < 12; i++) {
-            LocalDateTime day = now.minusDays(i);
-
-            for (int j = 0; j < 4; j++) {
-                SentTextMessage message = new SentTextMessage();
-                message.setId(i * 4 + j + 1);
-                message.setStoreId(STORE_ID.intValue());
-                message.setSentAt(day.minusHours(j));
-                messages.add(message);
-            }
+        dailyActivity = new ArrayList<>();
 
+        // Create daily rows for the past 12 days, 4 messages per day
+        LocalDate today = LocalDate.now();
+
+        for (int i = 11; i >= 0; i--) {
             // Create clicks with variable CTR (between 10% and 75%)
             int clickCount = (int) Math.round(4 * (0.1 + (0.65 * Math.sin(i / 3.0))));
             clickCount = Math.max(0, Math.min(4, clickCount)); // Ensure between 0-4 clicks
 
-            for (int j = 0; j < clickCount; j++) {
-                LinkClick click = new LinkClick();
-                click.setId(i * 4 + j + 1);
-                click.setStoreId(STORE_ID.intValue());
-                click.setClickedAt(day.minusHours(j).plusMinutes(30)); // Click 30 mins after message
-                clicks.add(click);
-            }
+            dailyActivity.add(new Object[]{Date.valueOf(today.minusDays(i)), 4L, (long) clickCount});
         }
+
+        // No stored forecast unless a test provides one
+        lenient().when(forecastStore.findFresh(anyInt(), anyInt())).thenReturn(null);
+    }
+
+    @Test
+    void shouldServeStoredForecastWithoutTraining() {
+        // Given
+        Map<String, Double> stored = Map.of(LocalDate.now().plusDays(1).toString(), 0.2);
+        when(forecastStore.findFresh(STORE_ID.intValue(), 1)).thenReturn(stored);
+
+        // When
+        Map<String, Double> predictions = ctrPredictionService.predictCTR(STORE_ID, 1);
+
+        // Then
+        assertEquals(stored, predictions, "Should return the stored forecast");
+        verifyNoInteractions(dailyStatsRepository);
     }
 
     @Test
     void shouldPredictCTRForFutureDays() {
         // Given
-        when(sentTextMessageRepository.findByStore_Id(STORE_ID.intValue())).thenReturn(messages);
-        when(linkClickRepository.findByStoreId(STORE_ID.intValue())).thenReturn(clicks);
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
 
         // When
         Map<String, Double> predictions = ctrPredictionService.predictCTR(STORE_ID, 7);
@@ -91,8 +108,7 @@ class CTRPredictionServiceTest {
     @Test
     void shouldGenerateFallbackPredictionsWhenInsufficientData() {
         // Given
-        when(sentTextMessageRepository.findByStore_Id(STORE_ID.intValue())).thenReturn(List.of());
-        when(linkClickRepository.findByStoreId(STORE_ID.intValue())).thenReturn(List.of());
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(List.of());
 
         // When
         Map<String, Double> predictions = ctrPredictionService.predictCTR(STORE_ID, 7);
@@ -105,16 +121,17 @@ class CTRPredictionServiceTest {
     @Test
     void shouldUseSimpleRegressionWhenTimeSeriesNotAvailable() {
         // Given
-        when(sentTextMessageRepository.findByStore_Id(STORE_ID.intValue())).thenReturn(messages);
-        when(linkClickRepository.findByStoreId(STORE_ID.intValue())).thenReturn(clicks);
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
         
-        // Create a spy of the service to simulate the time series forecasting exception
-        CTRPredictionService spy = spy(ctrPredictionService);
+        // Create a spy of the Weka engine to simulate the time series forecasting exception
+        WekaForecastingEngine weka = spy(new WekaForecastingEngine());
         doThrow(new RuntimeException("Time series forecasting unavailable"))
-                .when(spy).predictUsingTimeSeriesForecasting(anyMap(), anyInt());
+                .when(weka).forecastUsingTimeSeries(any(DailyCTRSeries.class), anyInt());
+        CTRPredictionService service = new CTRPredictionService(dailyStatsRepository, forecastModelCache, null,
+                forecastStore, new ForecastingEngines(List.of(weka), WekaForecastingEngine.NAME), null);
 
         // When
-        Map<String, Double> predictions = spy.predictCTR(STORE_ID, 7);
+        Map<String, Double> predictions = service.predictCTR(STORE_ID, 7);
 
         // Then
         assertNotNull(predictions);
@@ -125,4 +142,200 @@ class CTRPredictionServiceTest {
             assertTrue(ctr >= 0 && ctr <= 1, "CTR should be between 0 and 1");
         });
     }
-} 
\ No newline at end of file
+
+    @Test
+    void shouldPredictWithRequestedEngineWithoutCachingIt() {
+        // Given
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
+
+        // When
+        Map<String, Double> predictions = ctrPredictionService.predictCTR(STORE_ID, 7, HoltWintersForecastingEngine.NAME);
+
+        // Then
+        assertEquals(7, predictions.size(), "Should predict 7 days");
+        assertTrue(forecastModelCache.getStoreIds().isEmpty(), "Models of a non-default engine should not be cached");
+        verifyNoInteractions(forecastStore);
+        assertThrows(IllegalArgumentException.class, () -> ctrPredictionService.predictCTR(STORE_ID, 7, "unknown"),
+                "Unknown engines should be rejected");
+    }
+
+    @Test
+    void shouldUpdateOnlineModelWithoutReloadingHistory() {
+        // Given
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
+        OnlineForecastingEngine online = (OnlineForecastingEngine) forecastingEngines.get(OnlineForecastingEngine.NAME);
+        Map<String, Double> before = ctrPredictionService.predictCTR(STORE_ID, 7, OnlineForecastingEngine.NAME);
+
+        // When - a day with a much higher CTR arrives through the write path
+        online.record(STORE_ID.intValue(), LocalDate.now().plusDays(1), 10, 9);
+        Map<String, Double> after = ctrPredictionService.predictCTR(STORE_ID, 7, OnlineForecastingEngine.NAME);
+
+        // Then
+        String lastDay = LocalDate.now().plusDays(7).toString();
+        assertTrue(after.get(lastDay) > before.get(lastDay), "New activity should move the forecast up");
+        verify(dailyStatsRepository, times(1)).findDailyActivityByStore(STORE_ID.intValue());
+    }
+
+    @Test
+    void shouldShareInFlightPredictionWithShorterConcurrentRequest() throws Exception {
+        // Given - the first request blocks while reading the forecast table
+        Map<String, Double> stored = new HashMap<>();
+        for (int day = 1; day <= 30; day++) {
+            stored.put(LocalDate.now().plusDays(day).toString(), day / 100.0);
+        }
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        when(forecastStore.findFresh(anyInt(), anyInt())).thenAnswer(invocation -> {
+            reads.incrementAndGet();
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return stored;
+        });
+        FutureTask<Map<String, Double>> first = new FutureTask<>(() -> ctrPredictionService.predictCTR(STORE_ID, 30));
+        FutureTask<Map<String, Double>> second = new FutureTask<>(() -> ctrPredictionService.predictCTR(STORE_ID, 7));
+
+        try {
+            // When - the second request arrives while the first is in flight
+            new Thread(first).start();
+            assertTrue(entered.await(5, TimeUnit.SECONDS), "First request should start computing");
+            Thread secondThread = new Thread(second);
+            secondThread.start();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (secondThread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            // Then
+            assertEquals(30, first.get(5, TimeUnit.SECONDS).size(), "First request should get 30 days");
+            Map<String, Double> shorter = second.get(5, TimeUnit.SECONDS);
+            assertEquals(7, shorter.size(), "Second request should get the first 7 days");
+            shorter.forEach((date, ctr) -> assertEquals(stored.get(date), ctr, "Days should come from the shared result"));
+            assertEquals(1, reads.get(), "The prediction should be computed once");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldServeRepeatedPredictionsFromCachedModel() {
+        // Given
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
+
+        // When
+        Map<String, Double> first = ctrPredictionService.predictCTR(STORE_ID, 30);
+        Map<String, Double> second = ctrPredictionService.predictCTR(STORE_ID, 7);
+
+        // Then
+        assertEquals(30, first.size(), "Should predict 30 days");
+        assertEquals(7, second.size(), "Should predict 7 days");
+        second.forEach((date, ctr) -> assertEquals(first.get(date), ctr, "Shorter forecast should be a prefix of the longer one"));
+        verify(dailyStatsRepository, times(1)).findDailyActivityByStore(STORE_ID.intValue());
+    }
+
+    @Test
+    void shouldRetrainWhenNewDayOfDataArrives() {
+        // Given
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
+        ctrPredictionService.predictCTR(STORE_ID, 7);
+
+        // When - activity on a day after the training history, then another request
+        forecastModelCache.onActivity(STORE_ID.intValue(), LocalDate.now().plusDays(1));
+        ctrPredictionService.predictCTR(STORE_ID, 7);
+        ctrPredictionService.predictCTR(STORE_ID, 7);
+
+        // Then - retrained once, in the background, and fresh afterwards
+        verify(dailyStatsRepository, times(2)).findDailyActivityByStore(STORE_ID.intValue());
+    }
+
+    @Test
+    void shouldPredictBatchFromOneGroupedQuery() throws Exception {
+        // Given - rows are {storeId, activityDate, sends, clicks}
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] day : dailyActivity) {
+            rows.add(new Object[]{1, day[0], day[1], day[2]});
+        }
+        rows.add(new Object[]{2, Date.valueOf(LocalDate.now()), 10L, 5L});
+        when(dailyStatsRepository.findDailyActivityByStores(List.of(1, 2))).thenReturn(rows);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CTRPredictionService batchService = new CTRPredictionService(dailyStatsRepository, forecastModelCache, pool, forecastStore, forecastingEngines, null);
+        List<CTRPredictionDTO> results = new ArrayList<>();
+
+        // When
+        try {
+            batchService.predictBatch(List.of(store(1, "First"), store(2, "Second")), 7, results::add);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Then
+        assertEquals(2, results.size(), "Should have one prediction per store");
+        CTRPredictionDTO second = results.stream().filter(p -> p.getStoreId() == 2L).findFirst().orElseThrow();
+        assertEquals("Second", second.getStoreName(), "Store name should be included");
+        assertEquals(0.5, second.getCurrentCTR(), 0.0001, "Current CTR should come from the loaded history");
+        assertEquals(7, second.getPredictions().size(), "Should predict 7 days");
+        verify(dailyStatsRepository, never()).findDailyActivityByStore(anyInt());
+    }
+
+    @Test
+    void shouldTrainModelsForEveryStoreAndRefreshCachedOnes() {
+        // Given - store 1 already has a cached model
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(List.of());
+        ctrPredictionService.predictCTR(STORE_ID, 7);
+        CTRForecastModel cached = forecastModelCache.get(1, id -> fail("Model should be cached"));
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] day : dailyActivity) {
+            rows.add(new Object[]{1, day[0], day[1], day[2]});
+        }
+        when(dailyStatsRepository.findDailyActivityByStores(List.of(1, 2))).thenReturn(rows);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CTRPredictionService batchService = new CTRPredictionService(dailyStatsRepository, forecastModelCache, pool, forecastStore, forecastingEngines, null);
+        List<CTRForecastModel> models = new ArrayList<>();
+
+        // When
+        try {
+            batchService.trainModels(List.of(1, 2), models::add);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Then
+        assertEquals(2, models.size(), "Should train one model per store");
+        models.forEach(model -> assertEquals(CTRPredictionService.MODEL_HORIZON_DAYS, model.getHorizon(), "Should forecast the full horizon"));
+        assertNotSame(cached, forecastModelCache.get(1, id -> fail("Model should be cached")), "Cached model should be replaced");
+        assertEquals(Set.of(1), forecastModelCache.getStoreIds(), "Stores without a cached model should not be added");
+    }
+
+    @Test
+    void shouldAddBootstrapIntervalsAroundPredictions() {
+        // Given
+        when(dailyStatsRepository.findDailyActivityByStore(STORE_ID.intValue())).thenReturn(dailyActivity);
+        CTRPredictionService service = new CTRPredictionService(dailyStatsRepository, forecastModelCache, null,
+                forecastStore, forecastingEngines, new BootstrapIntervals(ForkJoinPool.commonPool(), 100, 0.9, 0));
+        CTRPredictionDTO prediction = new CTRPredictionDTO();
+        prediction.setStoreId(STORE_ID);
+        prediction.setPredictions(service.predictCTR(STORE_ID, 7));
+
+        // When
+        service.addIntervals(prediction, 7);
+
+        // Then
+        assertEquals(0.9, prediction.getConfidenceLevel(), "Confidence level should be reported");
+        assertEquals(prediction.getPredictions().keySet(), prediction.getLowerBounds().keySet(), "Every day should have a lower bound");
+        prediction.getPredictions().forEach((date, ctr) -> {
+            assertTrue(prediction.getLowerBounds().get(date) <= ctr, "Lower bound should not exceed the prediction");
+            assertTrue(prediction.getUpperBounds().get(date) >= ctr, "Upper bound should not be below the prediction");
+        });
+    }
+
+    private static Store store(int id, String name) {
+        Store store = new Store();
+        store.setId(id);
+        store.setName(name);
+        return store;
+    }
+}
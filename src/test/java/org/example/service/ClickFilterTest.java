@@ -0,0 +1,110 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickFilterTest {
+
+    private static final String BROWSER = "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 Chrome/124.0 Mobile Safari/537.36";
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private final ClickFilter clickFilter = new ClickFilter(Duration.ofMinutes(10), 10_000, 0.001, new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    });
+
+    @Test
+    void shouldDropRepeatedClickFromSameClient() {
+        assertEquals(ClickFilter.Verdict.ACCEPTED, clickFilter.check(1, BROWSER, "10.0.0.1"), "First click should count");
+        assertEquals(ClickFilter.Verdict.DUPLICATE, clickFilter.check(1, BROWSER, "10.0.0.1"), "Repeated tap should be dropped");
+        assertEquals(ClickFilter.Verdict.ACCEPTED, clickFilter.check(1, BROWSER, "10.0.0.2"), "Another client should count");
+        assertEquals(ClickFilter.Verdict.ACCEPTED, clickFilter.check(2, BROWSER, "10.0.0.1"), "Another message should count");
+    }
+
+    @Test
+    void shouldRememberClicksForAtLeastHalfTheWindow() {
+        // Given
+        clickFilter.check(1, BROWSER, "10.0.0.1");
+
+        // When / Then
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        assertEquals(ClickFilter.Verdict.DUPLICATE, clickFilter.check(1, BROWSER, "10.0.0.1"),
+                "Click should still be remembered in the next half window");
+        now.addAndGet(Duration.ofMinutes(20).toMillis());
+        assertEquals(ClickFilter.Verdict.ACCEPTED, clickFilter.check(1, BROWSER, "10.0.0.1"),
+                "Click should count again once the window has passed");
+    }
+
+    @Test
+    void shouldDropPreviewBotsAndHttpLibraries() {
+        String[] bots = {
+                "facebookexternalhit/1.1 (+http://www.facebook.com/externalhit_uatext.php)",
+                "Slackbot-LinkExpanding 1.0 (+https://api.slack.com/robots)",
+                "WhatsApp/2.23.20.0 A",
+                "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+                "TelegramBot (like TwitterBot)",
+                "curl/8.4.0",
+                "python-requests/2.31.0"};
+        for (String userAgent : bots) {
+            assertEquals(ClickFilter.Verdict.BOT, clickFilter.check(1, userAgent, "10.0.0.1"), userAgent + " should be a bot");
+        }
+        assertFalse(ClickFilter.isBot(BROWSER), "Mobile browsers should not be bots");
+        assertFalse(ClickFilter.isBot(null), "Missing user agents should not be bots");
+        assertFalse(ClickFilter.isBot("Mozilla/5.0 (Linux; Android 10; CUBOT NOTE 7) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/96.0.4664.45 Mobile Safari/537.36"), "Cubot phones should not be bots");
+        assertFalse(ClickFilter.isBot("Mozilla/5.0 (Linux; Android 9; CUBOT_X19) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/90.0.4430.91 Mobile Safari/537.36"), "Cubot phones should not be bots");
+        assertTrue(ClickFilter.isBot("Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)"),
+                "Crawler names ending in bot should be bots");
+        assertEquals(7L, clickFilter.getStats().get("bots"), "Bot clicks should be counted");
+    }
+
+    @Test
+    void shouldCountFilteredClicks() {
+        // When
+        clickFilter.check(1, BROWSER, "10.0.0.1");
+        clickFilter.check(1, BROWSER, "10.0.0.1");
+        clickFilter.check(1, BROWSER, "10.0.0.1");
+        clickFilter.check(1, "curl/8.4.0", "10.0.0.1");
+
+        // Then
+        assertEquals(1L, clickFilter.getStats().get("accepted"), "Accepted clicks should be counted");
+        assertEquals(2L, clickFilter.getStats().get("duplicates"), "Duplicates should be counted");
+        assertEquals(1L, clickFilter.getStats().get("bots"), "Bots should be counted");
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredRate() {
+        // When - fill the filter to its expected size with distinct clicks
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (clickFilter.check(i, BROWSER, "10.0.0.1") != ClickFilter.Verdict.ACCEPTED) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives <= 20, "Distinct clicks should rarely be taken for repeats, got " + falsePositives);
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final LocalDateTime SENT_AT = LocalDateTime.of(2024, 3, 15, 9, 0, 0, 123_000_000);
+
+    @Test
+    void shouldReturnClicksUntilCommitted() throws Exception {
+        // Given
+        ClickJournal journal = journal(100, 4);
+        journal.append(click(1, 1, 101));
+        journal.append(click(2, null, null));
+        journal.append(click(3, 1, 101));
+
+        // When
+        List<TrackedClick> first = journal.read(2);
+        List<TrackedClick> again = journal.read(2);
+        journal.commit(first.size());
+        List<TrackedClick> rest = journal.read(10);
+
+        // Then
+        assertEquals(List.of(1, 2), messageIds(first), "Oldest clicks should be read first");
+        assertEquals(List.of(1, 2), messageIds(again), "Clicks should be read again until committed");
+        assertEquals(List.of(3), messageIds(rest), "Committed clicks should not be read again");
+        TrackedClick click = first.get(0);
+        assertEquals(1, click.getLink().getStoreId(), "Store should be kept");
+        assertEquals(101, click.getLink().getTemplateId(), "Template should be kept");
+        assertEquals(SENT_AT, click.getLink().getSentAt(), "Send time should be kept to the millisecond");
+        assertEquals(SENT_AT.plusMinutes(1), click.getClickedAt(), "Click time should be kept to the millisecond");
+        assertNull(first.get(1).getLink().getStoreId(), "Missing store should stay missing");
+        assertNull(first.get(1).getLink().getTemplateId(), "Missing template should stay missing");
+    }
+
+    @Test
+    void shouldReplayUncommittedClicksAfterRestart() throws Exception {
+        // Given
+        ClickJournal journal = journal(100, 4);
+        for (int i = 1; i <= 5; i++) {
+            journal.append(click(i, 1, 101));
+        }
+        journal.commit(2);
+        journal.force();
+
+        // When - a new journal maps the directory, as after a restart
+        ClickJournal restarted = journal(100, 4);
+
+        // Then
+        assertEquals(3, restarted.getPending(), "Uncommitted clicks should still be pending");
+        assertEquals(List.of(3, 4, 5), messageIds(restarted.read(10)), "Uncommitted clicks should be read again");
+        restarted.append(click(6, 1, 101));
+        assertEquals(List.of(3, 4, 5, 6), messageIds(restarted.read(10)), "New clicks should follow the replayed ones");
+    }
+
+    @Test
+    void shouldRotateSegmentsAndDeleteCommittedOnes() throws Exception {
+        // Given - two records per segment
+        ClickJournal journal = journal(2, 10);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(journal.append(click(i, 1, 101)), "Click should be appended");
+        }
+        assertEquals(3, segmentFiles(), "Five clicks should take three segments");
+
+        // When
+        journal.commit(journal.read(4).size());
+
+        // Then
+        assertEquals(1, segmentFiles(), "Fully committed segments should be deleted");
+        assertEquals(List.of(5), messageIds(journal.read(10)), "The last click should still be pending");
+    }
+
+    @Test
+    void shouldRefuseClicksWhenAllSegmentsAreInUse() throws Exception {
+        // Given
+        ClickJournal journal = journal(2, 2);
+        for (int i = 1; i <= 4; i++) {
+            journal.append(click(i, 1, 101));
+        }
+
+        // When / Then
+        assertFalse(journal.append(click(5, 1, 101)), "A full journal should refuse clicks");
+        journal.commit(2);
+        assertTrue(journal.append(click(5, 1, 101)), "Committing should make room");
+    }
+
+    @Test
+    void shouldStopAtTornRecord() throws Exception {
+        // Given
+        ClickJournal journal = journal(100, 4);
+        journal.append(click(1, 1, 101));
+        journal.append(click(2, 1, 101));
+        journal.force();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 32 + 5); // Corrupt the second record
+        }
+
+        // When
+        ClickJournal restarted = journal(100, 4);
+
+        // Then
+        assertEquals(List.of(1), messageIds(restarted.read(10)), "Records after a torn one should be ignored");
+    }
+
+    @Test
+    void shouldNotTakeStaleRecordsForNewOnes() throws Exception {
+        // Given - a valid record copied to the slot after the end of the journal
+        ClickJournal journal = journal(100, 4);
+        journal.append(click(1, 1, 101));
+        journal.append(click(2, 1, 101));
+        journal.force();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer first = ByteBuffer.allocate(32);
+            channel.read(first, 0);
+            channel.write(first.flip(), 2 * 32);
+        }
+
+        // When
+        ClickJournal restarted = journal(100, 4);
+
+        // Then
+        assertEquals(List.of(1, 2), messageIds(restarted.read(10)), "A record should only be valid at its own position");
+    }
+
+    @Test
+    void shouldBeDisabledWithoutDirectory() throws Exception {
+        ClickJournal journal = new ClickJournal("", DataSize.ofKilobytes(1), 2);
+
+        assertFalse(journal.isEnabled(), "An empty directory should disable the journal");
+        assertEquals(0, journal.getPending(), "A disabled journal should have nothing pending");
+    }
+
+    private ClickJournal journal(int recordsPerSegment, int maxSegments) throws Exception {
+        return new ClickJournal(directory.toString(), DataSize.ofBytes(recordsPerSegment * 32L), maxSegments);
+    }
+
+    private TrackedClick click(int messageId, Integer storeId, Integer templateId) {
+        return new TrackedClick(new TrackingLink(messageId, storeId, templateId, SENT_AT, null), SENT_AT.plusMinutes(1));
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).count();
+        }
+    }
+
+    private static List<Integer> messageIds(List<TrackedClick> clicks) {
+        return clicks.stream().map(click -> click.getLink().getMessageId()).toList();
+    }
+}
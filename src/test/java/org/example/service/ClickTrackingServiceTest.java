@@ -0,0 +1,152 @@
+package org.example.service;
+
+import org.example.repository.SentTextMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickTrackingServiceTest {
+
+    @Mock
+    private SentTextMessageRepository sentTextMessageRepository;
+
+    @Mock
+    private LinkClickWriter linkClickWriter;
+
+    private final TrackingCodes trackingCodes = new TrackingCodes("test-secret");
+
+    private final ClickFilter clickFilter = new ClickFilter(Duration.ofMinutes(10), 1000, 0.001);
+
+    private ClickTrackingService clickTrackingService;
+
+    private static final String BROWSER = "Mozilla/5.0 (iPhone; CPU iPhone OS 17_0 like Mac OS X) Mobile/15E148 Safari/604.1";
+
+    private final Integer MESSAGE_ID = 123456;
+    private final LocalDateTime SENT_AT = LocalDateTime.of(2024, 3, 15, 9, 0);
+
+    @BeforeEach
+    void setUp() {
+        clickTrackingService = new ClickTrackingService(sentTextMessageRepository, linkClickWriter, trackingCodes, clickFilter, 100);
+    }
+
+    @Test
+    void shouldRedirectAndQueueClick() {
+        // Given
+        when(sentTextMessageRepository.findTrackingLink(MESSAGE_ID)).thenReturn(Collections.singletonList(
+                new Object[]{MESSAGE_ID, 1, 101, Timestamp.valueOf(SENT_AT), "https://shop.example.com/sale"}));
+
+        // When
+        URI destination = clickTrackingService.click(trackingCodes.encode(MESSAGE_ID, 1), BROWSER, "10.0.0.1");
+
+        // Then
+        assertEquals(URI.create("https://shop.example.com/sale"), destination, "Should redirect to the tracking link");
+        ArgumentCaptor<TrackedClick> click = ArgumentCaptor.forClass(TrackedClick.class);
+        verify(linkClickWriter).enqueue(click.capture());
+        assertEquals(MESSAGE_ID, click.getValue().getLink().getMessageId(), "Click should belong to the message");
+        assertEquals(1, click.getValue().getLink().getStoreId(), "Click should carry the store");
+        assertEquals(101, click.getValue().getLink().getTemplateId(), "Click should carry the template");
+        assertEquals(SENT_AT, click.getValue().getLink().getSentAt(), "Click should carry the send time");
+    }
+
+    @Test
+    void shouldLookUpEachLinkOnce() {
+        // Given
+        when(sentTextMessageRepository.findTrackingLink(MESSAGE_ID)).thenReturn(Collections.singletonList(
+                new Object[]{MESSAGE_ID, 1, 101, Timestamp.valueOf(SENT_AT), "https://shop.example.com/sale"}));
+        String code = trackingCodes.encode(MESSAGE_ID, 1);
+
+        // When
+        clickTrackingService.click(code, BROWSER, "10.0.0.1");
+        clickTrackingService.click(code, BROWSER, "10.0.0.2");
+        clickTrackingService.click(code, BROWSER, "10.0.0.3");
+
+        // Then
+        verify(sentTextMessageRepository, times(1)).findTrackingLink(MESSAGE_ID);
+        verify(linkClickWriter, times(3)).enqueue(any(TrackedClick.class));
+    }
+
+    @Test
+    void shouldRedirectButNotQueueRepeatedOrBotClicks() {
+        // Given
+        when(sentTextMessageRepository.findTrackingLink(MESSAGE_ID)).thenReturn(Collections.singletonList(
+                new Object[]{MESSAGE_ID, 1, 101, Timestamp.valueOf(SENT_AT), "https://shop.example.com/sale"}));
+        String code = trackingCodes.encode(MESSAGE_ID, 1);
+
+        // When
+        URI first = clickTrackingService.click(code, BROWSER, "10.0.0.1");
+        URI repeated = clickTrackingService.click(code, BROWSER, "10.0.0.1");
+        URI preview = clickTrackingService.click(code, "facebookexternalhit/1.1", "10.0.0.9");
+
+        // Then
+        assertNotNull(first, "First click should redirect");
+        assertEquals(first, repeated, "Repeated click should still redirect");
+        assertEquals(first, preview, "Preview bots should still be redirected");
+        verify(linkClickWriter, times(1)).enqueue(any(TrackedClick.class));
+    }
+
+    @Test
+    void shouldNotQueueClickForUnknownMessage() {
+        // Given
+        when(sentTextMessageRepository.findTrackingLink(MESSAGE_ID)).thenReturn(List.of());
+
+        // When
+        URI destination = clickTrackingService.click(trackingCodes.encode(MESSAGE_ID, 1), BROWSER, "10.0.0.1");
+
+        // Then
+        assertNull(destination, "Unknown message should not redirect");
+        verifyNoInteractions(linkClickWriter);
+    }
+
+    @Test
+    void shouldRejectForgedCodesWithoutLookup() {
+        // Given
+        String code = trackingCodes.encode(MESSAGE_ID, 1);
+        String tampered = code.substring(0, code.length() - 1) + (code.endsWith("A") ? "B" : "A");
+        String otherKey = new TrackingCodes("other-secret").encode(MESSAGE_ID, 1);
+
+        // When / Then
+        assertNull(clickTrackingService.click(tampered, BROWSER, "10.0.0.1"), "Tampered code should not redirect");
+        assertNull(clickTrackingService.click(otherKey, BROWSER, "10.0.0.1"), "Code signed with another key should not redirect");
+        assertNull(clickTrackingService.click("not-a-code", BROWSER, "10.0.0.1"), "Malformed code should not redirect");
+        verifyNoInteractions(sentTextMessageRepository, linkClickWriter);
+    }
+
+    @Test
+    void shouldNotRedirectCodeOfAnotherStore() {
+        // Given
+        when(sentTextMessageRepository.findTrackingLink(MESSAGE_ID)).thenReturn(Collections.singletonList(
+                new Object[]{MESSAGE_ID, 1, 101, Timestamp.valueOf(SENT_AT), "https://shop.example.com/sale"}));
+
+        // When
+        URI destination = clickTrackingService.click(trackingCodes.encode(MESSAGE_ID, 2), BROWSER, "10.0.0.1");
+
+        // Then
+        assertNull(destination, "Code made for another store should not redirect");
+        verifyNoInteractions(linkClickWriter);
+    }
+
+    @Test
+    void shouldTreatLinksWithoutSchemeAsHttps() {
+        assertEquals(URI.create("https://example.com/a"), ClickTrackingService.toDestination("example.com/a"),
+                "Link without scheme should get https");
+        assertEquals(URI.create("http://example.com"), ClickTrackingService.toDestination(" http://example.com "),
+                "Link with scheme should be kept");
+        assertNull(ClickTrackingService.toDestination("javascript://alert(1)"), "Only http and https should redirect");
+        assertNull(ClickTrackingService.toDestination(""), "Empty link should not redirect");
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.service;
+
+import org.example.dto.BacktestReportDTO;
+import org.example.dto.ModelBacktestDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ForecastBacktesterTest {
+
+    private static final double[] WEEKLY_PATTERN = {0.10, 0.12, 0.11, 0.13, 0.18, 0.25, 0.22};
+
+    @Mock
+    private CTRPredictionService ctrPredictionService;
+
+    private ExecutorService pool;
+    private ForecastBacktester backtester;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(2);
+        WekaForecastingEngine weka = new WekaForecastingEngine();
+        ForecastingEngines engines = new ForecastingEngines(
+                List.of(weka, new HoltWintersForecastingEngine(), new OnlineForecastingEngine(0.97, 10)), WekaForecastingEngine.NAME);
+        backtester = new ForecastBacktester(ctrPredictionService, engines, weka, pool, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shouldReportAccuracyAndCostPerModel() {
+        // Given - two stores with ten weeks of a weekly pattern
+        when(ctrPredictionService.getHistoricalCTR(List.of(1, 2))).thenReturn(Map.of(1, weekly(70), 2, weekly(70)));
+
+        // When
+        BacktestReportDTO report = backtester.backtest(List.of(1, 2),
+                List.of(ForecastBacktester.AVERAGE, HoltWintersForecastingEngine.NAME), 7, 7, 28);
+
+        // Then
+        assertEquals(2, report.getModels().size(), "Should report the requested models");
+        ModelBacktestDTO average = report.getModels().get(0);
+        ModelBacktestDTO holtWinters = report.getModels().get(1);
+        assertEquals(ForecastBacktester.AVERAGE, average.getModel(), "Models should keep the requested order");
+        // Origins at days 28, 35, ..., 63 for each store, seven forecast days each
+        assertEquals(12, holtWinters.getForecasts(), "Should train at every origin of both stores");
+        assertEquals(12 * 7, holtWinters.getPoints(), "Every forecast day has an observed CTR");
+        assertTrue(holtWinters.getMeanAbsoluteError() < average.getMeanAbsoluteError(),
+                "A seasonal model should beat the average on a seasonal history");
+        assertNotNull(holtWinters.getMeanAbsolutePercentageError(), "MAPE should be reported");
+        assertTrue(holtWinters.getTrainingMillis() > 0, "Training time should be measured");
+    }
+
+    @Test
+    void shouldOfferEveryEngineAndFallbackStage() {
+        assertEquals(List.of(ForecastBacktester.AVERAGE, ForecastBacktester.WEKA_TIME_SERIES, ForecastBacktester.WEKA_REGRESSION,
+                        HoltWintersForecastingEngine.NAME, OnlineForecastingEngine.NAME, WekaForecastingEngine.NAME),
+                backtester.getModelNames(), "Engines and the Weka stages should all be backtestable");
+        assertThrows(IllegalArgumentException.class, () -> backtester.backtest(List.of(1), List.of("unknown"), 7, 7, 28),
+                "Unknown models should be rejected");
+    }
+
+    @Test
+    void shouldRejectBacktestsOverTheFitCap() {
+        // Given - ten weeks from day 28 in daily steps is 42 origins, 84 fits with two models
+        when(ctrPredictionService.getHistoricalCTR(List.of(1, 2))).thenReturn(Map.of(1, weekly(70), 2, weekly(70)));
+        List<String> models = List.of(ForecastBacktester.AVERAGE, HoltWintersForecastingEngine.NAME);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> backtester.backtest(List.of(1, 2), models, 7, 1, 28),
+                "Daily origins of two stores should exceed 100 fits");
+        assertEquals(2, backtester.backtest(List.of(1, 2), models, 7, 7, 28).getModels().size(),
+                "Weekly origins should stay under the cap");
+        assertThrows(IllegalArgumentException.class,
+                () -> backtester.backtest(Collections.nCopies(101, 1), List.of(ForecastBacktester.AVERAGE), 7, 7, 28),
+                "Too many stores should be rejected before their history is loaded");
+    }
+
+    private static DailyCTRSeries weekly(int days) {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        DailyCTRSeries.Builder builder = new DailyCTRSeries.Builder();
+        for (int day = 0; day < days; day++) {
+            builder.add(start.plusDays(day), 1000, Math.round(WEEKLY_PATTERN[day % 7] * 1000));
+        }
+        return builder.build();
+    }
+}
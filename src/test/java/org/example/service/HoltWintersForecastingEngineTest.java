@@ -0,0 +1,95 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoltWintersForecastingEngineTest {
+
+    private static final double[] WEEKLY_PATTERN = {0.10, 0.12, 0.11, 0.13, 0.18, 0.25, 0.22};
+
+    private final HoltWintersForecastingEngine engine = new HoltWintersForecastingEngine();
+
+    @Test
+    void shouldForecastWeeklySeasonalityAtLeastAsWellAsWeka() {
+        // Given - ten weeks of a weekly pattern with noise, and the two weeks that follow
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2023, 1, 2);
+        DailyCTRSeries.Builder builder = new DailyCTRSeries.Builder();
+        for (int day = 0; day < 70; day++) {
+            double ctr = WEEKLY_PATTERN[day % 7] + random.nextGaussian() * 0.01;
+            builder.add(start.plusDays(day), 1000, Math.round(ctr * 1000));
+        }
+        DailyCTRSeries history = builder.build();
+
+        // When
+        double[] holtWinters = engine.forecast(history, 14);
+        double[] weka = new WekaForecastingEngine().forecast(history, 14);
+
+        // Then
+        double holtWintersError = meanAbsoluteError(holtWinters, 70);
+        double wekaError = meanAbsoluteError(weka, 70);
+        assertTrue(holtWintersError < 0.02, "Forecast should follow the weekly pattern, error was " + holtWintersError);
+        assertTrue(holtWintersError <= wekaError, "Should be at least as accurate as Weka on a seasonal series");
+    }
+
+    @Test
+    void shouldCarryStateAcrossDaysWithoutSends() {
+        // Given - every Sunday has no sends
+        LocalDate start = LocalDate.of(2023, 1, 2);
+        DailyCTRSeries.Builder builder = new DailyCTRSeries.Builder();
+        for (int day = 0; day < 28; day++) {
+            if (day % 7 != 6) {
+                builder.add(start.plusDays(day), 100, Math.round(WEEKLY_PATTERN[day % 7] * 100));
+            }
+        }
+        DailyCTRSeries history = builder.build();
+
+        // When
+        double[] forecast = engine.forecast(history, 7);
+
+        // Then
+        assertEquals(24, history.getObservedDays(), "Days without sends should not be observed");
+        for (int i = 0; i < forecast.length; i++) {
+            assertFalse(Double.isNaN(forecast[i]), "Every day should have a forecast");
+        }
+        assertEquals(WEEKLY_PATTERN[0], forecast[1], 0.02, "Monday should follow the weekly pattern");
+    }
+
+    @Test
+    void shouldFitShortHistoryWithoutSeasonality() {
+        // Given - one week of a flat CTR
+        LocalDate start = LocalDate.of(2023, 1, 2);
+        DailyCTRSeries.Builder builder = new DailyCTRSeries.Builder();
+        for (int day = 0; day < 7; day++) {
+            builder.add(start.plusDays(day), 100, 20);
+        }
+
+        // When
+        double[] forecast = engine.forecast(builder.build(), 30);
+
+        // Then
+        for (double ctr : forecast) {
+            assertEquals(0.2, ctr, 0.0001, "A flat history should give a flat forecast");
+        }
+    }
+
+    @Test
+    void shouldRejectHistoryWithoutEnoughDays() {
+        DailyCTRSeries history = new DailyCTRSeries.Builder().add(LocalDate.of(2023, 1, 2), 100, 20).build();
+
+        assertThrows(IllegalArgumentException.class, () -> engine.forecast(history, 7),
+                "One day of history is not enough to fit a trend");
+    }
+
+    private static double meanAbsoluteError(double[] forecast, int firstDay) {
+        double error = 0;
+        for (int i = 0; i < forecast.length; i++) {
+            error += Math.abs(forecast[i] - WEEKLY_PATTERN[(firstDay + i) % 7]);
+        }
+        return error / forecast.length;
+    }
+}
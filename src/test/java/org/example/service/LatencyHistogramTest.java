@@ -0,0 +1,65 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldPlaceDurationsInLogScaleBuckets() {
+        assertEquals(0, LatencyHistogram.bucketOf(0.5), "Sub-second clicks go to the first bucket");
+        assertEquals(0, LatencyHistogram.bucketOf(-10), "Clicks recorded before the send go to the first bucket");
+        assertEquals(1, LatencyHistogram.bucketOf(1), "One second starts the second bucket");
+        assertEquals(LatencyHistogram.BUCKETS_PER_DOUBLING + 1, LatencyHistogram.bucketOf(2),
+                "Each doubling adds BUCKETS_PER_DOUBLING buckets");
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(1e12),
+                "Very long durations go to the last bucket");
+
+        for (double seconds : new double[]{1.5, 45, 3600, 86400 * 7}) {
+            int bucket = LatencyHistogram.bucketOf(seconds);
+            assertTrue(seconds < LatencyHistogram.upperBoundSeconds(bucket), "Duration should be below its bucket bound");
+            assertTrue(seconds >= LatencyHistogram.upperBoundSeconds(bucket - 1), "Duration should be at or above the previous bound");
+        }
+    }
+
+    @Test
+    void shouldReportPercentilesFromBucketBounds() {
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        // Then
+        assertEquals(100, histogram.getTotal(), "Total should match");
+        assertEquals(LatencyHistogram.upperBoundSeconds(LatencyHistogram.bucketOf(10)), histogram.percentile(0.5),
+                "Median should be the bound of the 10 second bucket");
+        assertEquals(LatencyHistogram.upperBoundSeconds(LatencyHistogram.bucketOf(10)), histogram.percentile(0.9),
+                "p90 should still be in the 10 second bucket");
+        assertEquals(LatencyHistogram.upperBoundSeconds(LatencyHistogram.bucketOf(1000)), histogram.percentile(0.99),
+                "p99 should be the bound of the 1000 second bucket");
+        assertEquals(0, new LatencyHistogram().percentile(0.5), "Empty histogram has no percentiles");
+    }
+
+    @Test
+    void shouldMergeCounts() {
+        // Given
+        LatencyHistogram first = new LatencyHistogram();
+        first.record(5);
+        LatencyHistogram second = new LatencyHistogram();
+        second.record(5);
+        second.record(500);
+
+        // When
+        first.merge(second);
+
+        // Then
+        assertEquals(3, first.getTotal(), "Merged total should match");
+        assertEquals(2, first.getCounts()[LatencyHistogram.bucketOf(5)], "Counts in the same bucket should add up");
+        assertEquals(2, second.getTotal(), "Merged histogram should be unchanged");
+    }
+}
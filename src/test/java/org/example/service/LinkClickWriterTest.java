@@ -0,0 +1,122 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LinkClickWriterTest {
+
+    private static final String INSERT = "INSERT INTO link_click (sent_text_message_id, clicked_at) VALUES (?, ?)";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private MessageActivityService messageActivityService;
+
+    @Test
+    void shouldDropClicksWhenTheQueueIsFull() throws Exception {
+        // Given - a writer that is not running, so nothing leaves its queue of two
+        ClickJournal journal = new ClickJournal("", DataSize.ofKilobytes(1), 2);
+        LinkClickWriter writer = new LinkClickWriter(jdbcTemplate, transactionManager, messageActivityService, journal,
+                2, 10, Duration.ofMillis(10), Duration.ofMillis(10));
+
+        // When
+        boolean first = writer.enqueue(click(1));
+        boolean second = writer.enqueue(click(2));
+        boolean third = writer.enqueue(click(3));
+
+        // Then
+        assertTrue(first && second, "Clicks should be queued while there is room");
+        assertFalse(third, "A click should be dropped when the queue is full");
+        assertEquals(2L, writer.getStats().get("queued"), "Queued clicks should be counted");
+        assertEquals(1L, writer.getStats().get("dropped"), "Dropped clicks should be counted");
+        verifyNoInteractions(jdbcTemplate, transactionManager, messageActivityService);
+    }
+
+    @Test
+    void shouldSkipClicksThatCannotBeWritten() throws Exception {
+        // Given - message 3 violates a constraint whichever batch it is in
+        when(jdbcTemplate.batchUpdate(eq(INSERT), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(row -> row[0].equals(3))) {
+                throw new DataIntegrityViolationException("link_click_sent_text_message_id_fkey");
+            }
+            return new int[rows.size()];
+        });
+        LinkClickWriter writer = writer();
+        List<TrackedClick> batch = List.of(click(1), click(2), click(3), click(4), click(5));
+
+        // When
+        int done = writer.writeOrSkip(batch);
+
+        // Then
+        assertEquals(5, done, "Every click should be written or skipped");
+        assertEquals(4L, writer.getStats().get("written"), "Clicks without errors should be written");
+        assertEquals(1L, writer.getStats().get("skipped"), "Only the bad click should be skipped");
+        assertEquals(3L, writer.getStats().get("failedAttempts"), "Each failed split should be counted as an attempt");
+    }
+
+    @Test
+    void shouldRetryWhenNoTransactionCanBeOpened() throws Exception {
+        // Given - what the transaction manager throws when the pool cannot reach the database
+        when(transactionManager.getTransaction(any()))
+                .thenThrow(new CannotCreateTransactionException("Could not open JDBC Connection for transaction"));
+        LinkClickWriter writer = writer();
+
+        // When
+        int done = writer.writeOrSkip(List.of(click(1), click(2)));
+
+        // Then
+        assertEquals(0, done, "Nothing should be committed while the database is unavailable");
+        assertEquals(0L, writer.getStats().get("skipped"), "No click should be skipped");
+        assertEquals(1L, writer.getStats().get("failedAttempts"), "The failed attempt should be counted");
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void shouldRetryWhenTheConnectionDropsDuringABatch() throws Exception {
+        // Given
+        when(jdbcTemplate.batchUpdate(eq(INSERT), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("An I/O error occurred while sending to the backend"));
+        LinkClickWriter writer = writer();
+
+        // When
+        int done = writer.writeOrSkip(List.of(click(1), click(2)));
+
+        // Then
+        assertEquals(0, done, "Nothing should be committed while the database is unavailable");
+        assertEquals(0L, writer.getStats().get("skipped"), "No click should be skipped");
+        assertEquals(0L, writer.getStats().get("written"), "No click should be written");
+        verify(transactionManager).rollback(any());
+    }
+
+    private LinkClickWriter writer() throws Exception {
+        ClickJournal journal = new ClickJournal("", DataSize.ofKilobytes(1), 2);
+        return new LinkClickWriter(jdbcTemplate, transactionManager, messageActivityService, journal,
+                10, 10, Duration.ofMillis(10), Duration.ofMillis(10));
+    }
+
+    private static TrackedClick click(int messageId) {
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 15, 9, 0);
+        return new TrackedClick(new TrackingLink(messageId, 1, 101, sentAt, null), sentAt.plusMinutes(1));
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.service;
+
+import org.example.repository.StoreTemplateDailyStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageActivityServiceTest {
+
+    @Mock
+    private StoreTemplateDailyStatsRepository dailyStatsRepository;
+
+    @Mock
+    private StoreAnalyticsCache storeAnalyticsCache;
+
+    @Mock
+    private RecentActivityCounters recentActivityCounters;
+
+    @Mock
+    private TimeToClickHistograms timeToClickHistograms;
+
+    @Mock
+    private CTRForecastModelCache forecastModelCache;
+
+    @Mock
+    private OnlineForecastingEngine onlineForecastingEngine;
+
+    @InjectMocks
+    private MessageActivityService messageActivityService;
+
+    private final Integer STORE_ID = 1;
+    private final Integer TEMPLATE_ID = 101;
+
+    @Test
+    void shouldAddSendToDailyRollup() {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 15, 23, 59);
+
+        // When
+        messageActivityService.recordMessageSent(STORE_ID, TEMPLATE_ID, sentAt);
+
+        // Then
+        verify(dailyStatsRepository).addSends(STORE_ID, TEMPLATE_ID, LocalDate.of(2024, 3, 15), 1L);
+        verify(recentActivityCounters).recordSends(STORE_ID, sentAt, 1L);
+        verify(forecastModelCache).onActivity(STORE_ID, LocalDate.of(2024, 3, 15));
+        verify(onlineForecastingEngine).record(STORE_ID, LocalDate.of(2024, 3, 15), 1L, 0L);
+        verify(storeAnalyticsCache).evict(STORE_ID);
+    }
+
+    @Test
+    void shouldAddClickToDailyRollupOnClickDay() {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 15, 23, 59);
+        LocalDateTime clickedAt = LocalDateTime.of(2024, 3, 16, 0, 1);
+
+        // When
+        messageActivityService.recordLinkClick(STORE_ID, TEMPLATE_ID, sentAt, clickedAt);
+
+        // Then
+        verify(dailyStatsRepository).addClicks(STORE_ID, TEMPLATE_ID, LocalDate.of(2024, 3, 16), 1L);
+        verify(recentActivityCounters).recordClicks(STORE_ID, clickedAt, 1L);
+        verify(timeToClickHistograms).record(STORE_ID, TEMPLATE_ID, sentAt, clickedAt);
+        verify(onlineForecastingEngine).record(STORE_ID, LocalDate.of(2024, 3, 16), 0L, 1L);
+        verify(storeAnalyticsCache).evict(STORE_ID);
+    }
+
+    @Test
+    void shouldSumBatchOfClicksPerStoreTemplateAndDay() {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 15, 9, 0);
+        TrackingLink link = new TrackingLink(1, STORE_ID, TEMPLATE_ID, sentAt, URI.create("https://example.com"));
+        TrackingLink otherLink = new TrackingLink(2, STORE_ID, TEMPLATE_ID, sentAt, URI.create("https://example.com"));
+        TrackingLink unattributed = new TrackingLink(3, null, null, sentAt, URI.create("https://example.com"));
+        TrackingLink untemplated = new TrackingLink(4, STORE_ID, null, sentAt, URI.create("https://example.com"));
+        List<TrackedClick> clicks = List.of(
+                new TrackedClick(link, LocalDateTime.of(2024, 3, 15, 10, 0)),
+                new TrackedClick(otherLink, LocalDateTime.of(2024, 3, 15, 11, 0)),
+                new TrackedClick(link, LocalDateTime.of(2024, 3, 16, 8, 0)),
+                new TrackedClick(unattributed, LocalDateTime.of(2024, 3, 15, 10, 0)),
+                new TrackedClick(untemplated, LocalDateTime.of(2024, 3, 15, 12, 0)));
+
+        // When
+        messageActivityService.recordLinkClicks(clicks);
+
+        // Then
+        verify(dailyStatsRepository).addClicks(STORE_ID, TEMPLATE_ID, LocalDate.of(2024, 3, 15), 2L);
+        verify(dailyStatsRepository).addClicks(STORE_ID, TEMPLATE_ID, LocalDate.of(2024, 3, 16), 1L);
+        verifyNoMoreInteractions(dailyStatsRepository);
+        verify(recentActivityCounters, times(4)).recordClicks(eq(STORE_ID), any(LocalDateTime.class), eq(1L));
+        verify(timeToClickHistograms, times(3)).record(eq(STORE_ID), eq(TEMPLATE_ID), eq(sentAt), any(LocalDateTime.class));
+        verify(storeAnalyticsCache).evict(STORE_ID);
+    }
+
+    @Test
+    void shouldCountMessagesWithoutTemplateOutsideTheRollup() {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 15, 9, 0);
+        LocalDateTime clickedAt = sentAt.plusHours(1);
+
+        // When
+        messageActivityService.recordMessageSent(STORE_ID, null, sentAt);
+        messageActivityService.recordLinkClick(STORE_ID, null, sentAt, clickedAt);
+
+        // Then
+        verifyNoInteractions(dailyStatsRepository, timeToClickHistograms);
+        verify(recentActivityCounters).recordSends(STORE_ID, sentAt, 1L);
+        verify(recentActivityCounters).recordClicks(STORE_ID, clickedAt, 1L);
+        verify(onlineForecastingEngine).record(STORE_ID, LocalDate.of(2024, 3, 15), 1L, 0L);
+        verify(onlineForecastingEngine).record(STORE_ID, LocalDate.of(2024, 3, 15), 0L, 1L);
+        verify(storeAnalyticsCache, times(2)).evict(STORE_ID);
+    }
+
+    @Test
+    void shouldIgnoreMessagesWithoutStore() {
+        // When
+        messageActivityService.recordMessageSent(null, TEMPLATE_ID, LocalDateTime.now());
+        messageActivityService.recordLinkClick(null, TEMPLATE_ID, LocalDateTime.now(), LocalDateTime.now());
+
+        // Then
+        verifyNoInteractions(dailyStatsRepository, storeAnalyticsCache, recentActivityCounters, timeToClickHistograms, forecastModelCache,
+                onlineForecastingEngine);
+    }
+}
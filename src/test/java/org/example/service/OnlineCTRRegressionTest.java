@@ -0,0 +1,86 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnlineCTRRegressionTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void shouldRecoverALinearTrendWithoutDecay() {
+        // Given - CTR rises by 0.1% a day from 10%
+        OnlineCTRRegression regression = new OnlineCTRRegression(1);
+        for (int day = 0; day < 30; day++) {
+            regression.add(START.plusDays(day), 1000, 100 + day);
+        }
+
+        // When - day 29 is the last day, so the forecast starts at day 30
+        double[] forecast = regression.forecast(START.plusDays(29), 3);
+
+        // Then
+        assertEquals(0.130, forecast[0], 1e-9, "Day 30 should continue the trend");
+        assertEquals(0.132, forecast[2], 1e-9, "Day 32 should continue the trend");
+    }
+
+    @Test
+    void shouldMatchABatchFitWhenDaysArriveOneEventAtATime() {
+        // Given - the same history added as daily totals and as single sends and clicks
+        DailyCTRSeries.Builder history = new DailyCTRSeries.Builder();
+        OnlineCTRRegression incremental = new OnlineCTRRegression(0.9);
+        for (int day = 0; day < 20; day++) {
+            if (day % 5 == 3) {
+                continue; // a day without sends
+            }
+            long clicks = 2 + (day * 7) % 5;
+            history.add(START.plusDays(day), 10, clicks);
+            for (int i = 0; i < 10; i++) {
+                incremental.add(START.plusDays(day), 1, i < clicks ? 1 : 0);
+            }
+        }
+        OnlineCTRRegression batch = OnlineCTRRegression.of(history.build(), 0.9);
+
+        // When
+        double[] expected = batch.forecast(START.plusDays(19), 10);
+        double[] actual = incremental.forecast(START.plusDays(19), 10);
+
+        // Then
+        assertEquals(16, incremental.getObservedDays(), "Days without sends should not be points");
+        assertArrayEquals(expected, actual, 1e-12, "Incremental updates should give the batch fit");
+    }
+
+    @Test
+    void shouldWeighRecentDaysMoreWithDecay() {
+        // Given - a long flat history at 10%, then a week at 30%
+        OnlineCTRRegression regression = new OnlineCTRRegression(0.8);
+        for (int day = 0; day < 60; day++) {
+            regression.add(START.plusDays(day), 100, day < 53 ? 10 : 30);
+        }
+
+        // When
+        double[] forecast = regression.forecast(START.plusDays(59), 1);
+
+        // Then
+        assertTrue(forecast[0] > 0.25, "Recent days should dominate the fit, got " + forecast[0]);
+    }
+
+    @Test
+    void shouldIgnoreActivityForDaysAlreadyFoldedIn() {
+        // Given
+        OnlineCTRRegression regression = new OnlineCTRRegression(1);
+        regression.add(START, 10, 1);
+        regression.add(START.plusDays(1), 10, 1);
+        double[] before = regression.forecast(START.plusDays(1), 1);
+
+        // When
+        regression.add(START, 10, 10);
+
+        // Then
+        assertArrayEquals(before, regression.forecast(START.plusDays(1), 1), "Late activity should not change the fit");
+        assertThrows(IllegalStateException.class, () -> new OnlineCTRRegression(1).forecast(START, 1),
+                "A model without days cannot forecast");
+    }
+}
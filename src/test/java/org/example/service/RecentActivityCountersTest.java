@@ -0,0 +1,86 @@
+package org.example.service;
+
+import org.example.repository.LinkClickRepository;
+import org.example.repository.SentTextMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecentActivityCountersTest {
+
+    @Mock
+    private SentTextMessageRepository sentTextMessageRepository;
+
+    @Mock
+    private LinkClickRepository linkClickRepository;
+
+    private final Integer STORE_ID = 1;
+    private final LocalDateTime NOW = LocalDateTime.of(2024, 3, 15, 12, 30);
+    private RecentActivityCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        counters = new RecentActivityCounters(sentTextMessageRepository, linkClickRepository, 48, true, clock);
+    }
+
+    @Test
+    void shouldNotAnswerBeforeSeeding() {
+        counters.recordSends(STORE_ID, NOW, 5);
+
+        assertNull(counters.getTotals(STORE_ID, 1), "Unseeded counters should defer to the database");
+    }
+
+    @Test
+    void shouldSumOnlyHoursInsideThePeriod() {
+        // Given
+        counters.markSeeded();
+        counters.recordSends(STORE_ID, NOW.minusMinutes(10), 5);
+        counters.recordClicks(STORE_ID, NOW.minusHours(3), 2);
+        counters.recordSends(STORE_ID, NOW.minusHours(30), 7);
+
+        // Then
+        assertArrayEquals(new long[]{5L, 2L}, counters.getTotals(STORE_ID, 1), "Last day totals should match");
+        assertArrayEquals(new long[]{12L, 2L}, counters.getTotals(STORE_ID, 2), "Last two days totals should match");
+        assertArrayEquals(new long[]{0L, 0L}, counters.getTotals(2, 1), "Unknown store should have no activity");
+    }
+
+    @Test
+    void shouldIgnoreActivityOlderThanTheWindow() {
+        // Given
+        counters.markSeeded();
+        counters.recordSends(STORE_ID, NOW.minusHours(48), 9);
+
+        // Then
+        assertArrayEquals(new long[]{0L, 0L}, counters.getTotals(STORE_ID, 2), "Activity outside the window should be dropped");
+        assertNull(counters.getTotals(STORE_ID, 3), "Periods longer than the window should defer to the database");
+    }
+
+    @Test
+    void shouldSeedFromHourlyCounts() {
+        // Given
+        when(sentTextMessageRepository.countMessagesByStoreAndHour(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{STORE_ID, Timestamp.valueOf(NOW.minusHours(2).withMinute(0)), 30L}));
+        when(linkClickRepository.countClicksByStoreAndHour(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{STORE_ID, Timestamp.valueOf(NOW.minusHours(1).withMinute(0)), 6L}));
+
+        // When
+        counters.seed();
+
+        // Then
+        assertArrayEquals(new long[]{30L, 6L}, counters.getTotals(STORE_ID, 1), "Seeded totals should match");
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.service;
+
+import org.example.config.CacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreAnalyticsCacheTest {
+
+    private Cache cache;
+    private StoreAnalyticsCache storeAnalyticsCache;
+
+    @BeforeEach
+    void setUp() {
+        CacheManager cacheManager = new CacheConfig().cacheManager(10, Duration.ofMinutes(5));
+        cache = cacheManager.getCache(CacheConfig.STORE_ANALYTICS_CACHE);
+        storeAnalyticsCache = new StoreAnalyticsCache(cacheManager);
+    }
+
+    @Test
+    void shouldEvictOnlyTheAffectedStore() {
+        // Given
+        cache.put(1, Map.of("totalMessages", 10L));
+        cache.put(2, Map.of("totalMessages", 20L));
+
+        // When
+        storeAnalyticsCache.evict(1);
+
+        // Then
+        assertNull(cache.get(1), "Store 1 should be evicted");
+        assertNotNull(cache.get(2), "Store 2 should still be cached");
+        assertEquals(1L, storeAnalyticsCache.getStats().get("invalidations"), "One invalidation should be counted");
+    }
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        // Given
+        cache.put(1, Map.of("totalMessages", 10L));
+
+        // When
+        cache.get(1);
+        cache.get(1);
+        cache.get(3);
+
+        // Then
+        Map<String, Object> stats = storeAnalyticsCache.getStats();
+        assertEquals(2L, stats.get("hits"), "Hits should match");
+        assertEquals(1L, stats.get("misses"), "Misses should match");
+        assertEquals(0L, stats.get("invalidations"), "Nothing was invalidated");
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.service;
+
+import org.example.dto.TemplateCTRPredictionDTO;
+import org.example.model.TextMessageTemplate;
+import org.example.repository.StoreTemplateDailyStatsRepository;
+import org.example.repository.TextMessageTemplateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TemplateCTRPredictionServiceTest {
+
+    private static final Integer STORE_ID = 1;
+
+    @Mock
+    private StoreTemplateDailyStatsRepository dailyStatsRepository;
+
+    @Mock
+    private TextMessageTemplateRepository templateRepository;
+
+    @Mock
+    private CTRPredictionService ctrPredictionService;
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shouldPredictEveryTemplateFromOneGroupedQuery() {
+        // Given - rows are {templateId, activityDate, sends, clicks}; template 103 was never sent
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = List.of(
+                new Object[]{101, Date.valueOf(today.minusDays(1)), 10L, 2L},
+                new Object[]{101, Date.valueOf(today), 10L, 4L},
+                new Object[]{102, Date.valueOf(today), 20L, 1L});
+        when(dailyStatsRepository.findDailyActivityByTemplate(STORE_ID)).thenReturn(rows);
+        when(templateRepository.findByStoreId(STORE_ID)).thenReturn(List.of(template(101, "Welcome"), template(102, "Promo"), template(103, "Unused")));
+        when(ctrPredictionService.trainModel(eq(STORE_ID), any(DailyCTRSeries.class), eq(7)))
+                .thenAnswer(invocation -> flatModel(((DailyCTRSeries) invocation.getArgument(1)).average(0.05)));
+        TemplateCTRPredictionService service = new TemplateCTRPredictionService(
+                dailyStatsRepository, templateRepository, ctrPredictionService, pool, 2);
+
+        // When
+        List<TemplateCTRPredictionDTO> predictions = service.predictTemplateCTR(STORE_ID, 7);
+
+        // Then
+        assertEquals(List.of(101, 102, 103), predictions.stream().map(TemplateCTRPredictionDTO::getTemplateId).toList(),
+                "Every template should be predicted, ordered by ID");
+        assertEquals("Welcome", predictions.get(0).getTemplateName(), "Template name should be included");
+        assertEquals(0.3, predictions.get(0).getCurrentCTR(), 0.0001, "Current CTR should come from the loaded history");
+        assertEquals(0.3, predictions.get(0).getAveragePredictedCTR(), 0.0001, "Forecast should come from the template's own history");
+        assertEquals(7, predictions.get(1).getPredictions().size(), "Should predict 7 days");
+        assertEquals(0.0, predictions.get(2).getCurrentCTR(), "An unsent template has no current CTR");
+        verify(dailyStatsRepository, times(1)).findDailyActivityByTemplate(STORE_ID);
+    }
+
+    @Test
+    void shouldCapConcurrentTraining() {
+        // Given - 30 templates with a slow model
+        List<TextMessageTemplate> templates = new ArrayList<>();
+        for (int id = 1; id <= 30; id++) {
+            templates.add(template(id, "Template " + id));
+        }
+        when(dailyStatsRepository.findDailyActivityByTemplate(STORE_ID)).thenReturn(List.of());
+        when(templateRepository.findByStoreId(STORE_ID)).thenReturn(templates);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(ctrPredictionService.trainModel(eq(STORE_ID), any(DailyCTRSeries.class), eq(7))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return flatModel(0.05);
+        });
+        TemplateCTRPredictionService service = new TemplateCTRPredictionService(
+                dailyStatsRepository, templateRepository, ctrPredictionService, pool, 3);
+
+        // When
+        List<TemplateCTRPredictionDTO> predictions = service.predictTemplateCTR(STORE_ID, 7);
+
+        // Then
+        assertEquals(30, predictions.size(), "Every template should be predicted");
+        assertTrue(maxRunning.get() <= 3, "At most 3 models should train at once, saw " + maxRunning.get());
+    }
+
+    private static TextMessageTemplate template(int id, String name) {
+        TextMessageTemplate template = new TextMessageTemplate();
+        template.setId(id);
+        template.setTemplateName(name);
+        return template;
+    }
+
+    private static CTRForecastModel flatModel(double ctr) {
+        double[] forecast = new double[CTRPredictionService.MODEL_HORIZON_DAYS];
+        Arrays.fill(forecast, ctr);
+        return new CTRForecastModel(STORE_ID, "average", forecast, null);
+    }
+}
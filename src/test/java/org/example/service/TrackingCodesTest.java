@@ -0,0 +1,72 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingCodesTest {
+
+    private final TrackingCodes trackingCodes = new TrackingCodes("test-secret");
+
+    @Test
+    void shouldRoundTripMessageAndStoreIds() {
+        int[][] cases = {{1, 1}, {123456, 42}, {Integer.MAX_VALUE, Integer.MAX_VALUE}};
+        for (int[] ids : cases) {
+            // When
+            TrackingCodes.Code code = trackingCodes.decode(trackingCodes.encode(ids[0], ids[1]));
+
+            // Then
+            assertNotNull(code, "Code should decode");
+            assertEquals(ids[0], code.getMessageId(), "Message ID should round trip");
+            assertEquals(ids[1], code.getStoreId(), "Store ID should round trip");
+        }
+    }
+
+    @Test
+    void shouldRoundTripMessageWithoutStore() {
+        // When
+        TrackingCodes.Code code = trackingCodes.decode(trackingCodes.encode(7, null));
+
+        // Then
+        assertNotNull(code, "Code should decode");
+        assertEquals(7, code.getMessageId(), "Message ID should round trip");
+        assertNull(code.getStoreId(), "Missing store should round trip");
+    }
+
+    @Test
+    void shouldKeepCodesShort() {
+        assertEquals(8, trackingCodes.encode(1, 1).length(), "Small IDs should give short codes");
+        assertTrue(trackingCodes.encode(Integer.MAX_VALUE, Integer.MAX_VALUE).length() <= 18, "Codes should be at most 18 characters");
+        assertTrue(trackingCodes.encode(123456, 42).matches("[0-9A-Za-z]+"), "Codes should be URL safe");
+    }
+
+    @Test
+    void shouldRejectAlteredCodes() {
+        // Given
+        String code = trackingCodes.encode(123456, 42);
+
+        // When
+        int accepted = 0;
+        for (int i = 0; i < code.length(); i++) {
+            for (char c : "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray()) {
+                if (c != code.charAt(i) && trackingCodes.decode(code.substring(0, i) + c + code.substring(i + 1)) != null) {
+                    accepted++;
+                }
+            }
+        }
+
+        // Then
+        assertEquals(0, accepted, "No single-character change should pass the checksum");
+        assertNull(trackingCodes.decode(code.substring(0, 6) + "0" + code.substring(6)), "Padded payload should be rejected");
+        assertNull(trackingCodes.decode(code + "!"), "Invalid characters should be rejected");
+        assertNull(trackingCodes.decode("abc"), "Too short codes should be rejected");
+        assertNull(new TrackingCodes("other-secret").decode(code), "Codes should only decode with their own key");
+    }
+
+    @Test
+    void shouldRefuseMissingOrPlaceholderSecret() {
+        assertThrows(IllegalStateException.class, () -> new TrackingCodes(""), "An unset secret should fail startup");
+        assertThrows(IllegalStateException.class, () -> new TrackingCodes("change-me"),
+                "The placeholder secret should fail startup");
+    }
+}